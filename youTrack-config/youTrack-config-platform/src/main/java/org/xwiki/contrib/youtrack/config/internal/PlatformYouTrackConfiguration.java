@@ -27,7 +27,6 @@ import org.xwiki.contrib.youtrack.config.YouTrackServer;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
-import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -40,8 +39,7 @@ import java.util.Map;
 public class PlatformYouTrackConfiguration implements YouTrackConfiguration
 {
     @Inject
-    @Named("YouTrack")
-    private ConfigurationSource youTrackConfigurationSource;
+    private YouTrackServerSnapshots serverSnapshots;
 
     @Inject
     @Named("xwikiproperties")
@@ -50,12 +48,8 @@ public class PlatformYouTrackConfiguration implements YouTrackConfiguration
     @Override
     public Map<String, YouTrackServer> getYouTrackServers()
     {
-        Map<String, YouTrackServer> youTrackServers = this.youTrackConfigurationSource.getProperty("serverMappings");
-        // The returned value can be null if no xobject has been defined on the wiki config page.
-        if (youTrackServers == null) {
-            youTrackServers = Collections.emptyMap();
-        }
-        return youTrackServers;
+        // The servers are read once per wiki and then only when the wiki config page changes.
+        return this.serverSnapshots.getServers();
     }
 
     @Override
@@ -63,4 +57,125 @@ public class PlatformYouTrackConfiguration implements YouTrackConfiguration
     {
         return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.async", Boolean.TRUE);
     }
+
+    @Override
+    public boolean isRenderingCacheEnabled()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.cache.rendering", Boolean.FALSE);
+    }
+
+    @Override
+    public int getRenderingCacheLifespan()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.cache.rendering.lifespan",
+            DEFAULT_RENDERING_CACHE_LIFESPAN);
+    }
+
+    @Override
+    public int getIssueCacheLifespan()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.cache.issue.lifespan",
+            DEFAULT_ISSUE_CACHE_LIFESPAN);
+    }
+
+    @Override
+    public int getIssueCacheSize()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.cache.issue.size",
+            DEFAULT_ISSUE_CACHE_SIZE);
+    }
+
+    @Override
+    public int getQueryCacheLifespan()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.cache.query.lifespan",
+            DEFAULT_QUERY_CACHE_LIFESPAN);
+    }
+
+    @Override
+    public int getQueryCacheMaxStale()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.cache.query.maxStale",
+            DEFAULT_QUERY_CACHE_MAX_STALE);
+    }
+
+    @Override
+    public int getQueryCacheSize()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.cache.query.size",
+            DEFAULT_QUERY_CACHE_SIZE);
+    }
+
+    @Override
+    public int getIssueBatchWindow()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.batch.window",
+            DEFAULT_ISSUE_BATCH_WINDOW);
+    }
+
+    @Override
+    public int getIssueBatchSize()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.batch.size", DEFAULT_ISSUE_BATCH_SIZE);
+    }
+
+    @Override
+    public int getIssueFetchParallelism()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.list.parallelism",
+            DEFAULT_ISSUE_FETCH_PARALLELISM);
+    }
+
+    @Override
+    public int getCircuitBreakerFailureRate()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.circuitBreaker.failureRate",
+            DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE);
+    }
+
+    @Override
+    public int getCircuitBreakerWindow()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.circuitBreaker.window",
+            DEFAULT_CIRCUIT_BREAKER_WINDOW);
+    }
+
+    @Override
+    public int getCircuitBreakerCoolDown()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.circuitBreaker.coolDown",
+            DEFAULT_CIRCUIT_BREAKER_COOL_DOWN);
+    }
+
+    @Override
+    public int getCircuitBreakerProbes()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.circuitBreaker.probes",
+            DEFAULT_CIRCUIT_BREAKER_PROBES);
+    }
+
+    @Override
+    public int getRetryMaxAttempts()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.retry.maxAttempts",
+            DEFAULT_RETRY_MAX_ATTEMPTS);
+    }
+
+    @Override
+    public int getRetryDelay()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.retry.delay", DEFAULT_RETRY_DELAY);
+    }
+
+    @Override
+    public int getRetryDeadline()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.retry.deadline", DEFAULT_RETRY_DEADLINE);
+    }
+
+    @Override
+    public boolean isWarmUpEnabled()
+    {
+        return this.xwikiPropertiesConfigurationSource.getProperty("YouTrack.warmUp", Boolean.FALSE);
+    }
 }
@@ -19,23 +19,16 @@
  */
 package org.xwiki.contrib.youtrack.config.internal;
 
-import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
-import com.xpn.xwiki.doc.XWikiDocument;
-import com.xpn.xwiki.objects.BaseObject;
-import com.xpn.xwiki.objects.BaseProperty;
-import com.xpn.xwiki.objects.StringProperty;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.configuration.internal.AbstractDocumentConfigurationSource;
 import org.xwiki.contrib.youtrack.config.YouTrackServer;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.LocalDocumentReference;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -53,15 +46,21 @@ public class YouTrackConfigClassDocumentConfigurationSource extends AbstractDocu
 {
     private static final String SPACE = "YouTrack";
 
-    private static final LocalDocumentReference CLASS_REFERENCE = new LocalDocumentReference(SPACE,
+    /**
+     * The local reference of the {@code YouTrack.YouTrackConfigClass} class.
+     */
+    static final LocalDocumentReference CLASS_REFERENCE = new LocalDocumentReference(SPACE,
             "YouTrackConfigClass");
 
     /**
      * The local reference of the {@code YouTrack.YouTrackConfig} document.
      */
-    private static final LocalDocumentReference DOC_REFERENCE =
+    static final LocalDocumentReference DOC_REFERENCE =
         new LocalDocumentReference(SPACE, "YouTrackConfig");
 
+    @Inject
+    private YouTrackServerSnapshots serverSnapshots;
+
     @Override
     protected String getCacheId()
     {
@@ -94,56 +93,13 @@ public class YouTrackConfigClassDocumentConfigurationSource extends AbstractDocu
     @Override
     protected Object getBaseProperty(String propertyName, boolean text) throws XWikiException
     {
-        // Only handle the "serverMappings" property and when we get asked for it, we get all XObjects in the document
-        // and transform them into a Map
+        // Only handle the "serverMappings" property and when we get asked for it, we return the servers defined by
+        // all the XObjects in the document
         if (!propertyName.equals("serverMappings")) {
             return super.getBaseProperty(propertyName, text);
         }
 
-        Map<String, YouTrackServer> youTrackServers = new HashMap<>();
-        List<BaseObject> baseObjects = getYouTrackServerBaseObjects();
-        for (BaseObject baseObject : baseObjects) {
-            YouTrackServer youTrackServer;
-            StringProperty idProperty = (StringProperty) baseObject.getField("id");
-            StringProperty urlProperty = (StringProperty) baseObject.getField("url");
-            if (!isPropertyEmpty(idProperty) && !isPropertyEmpty(urlProperty)) {
-                StringProperty usernameProperty = (StringProperty) baseObject.getField("username");
-                StringProperty passswordProperty = (StringProperty) baseObject.getField("password");
-                if (!isPropertyEmpty(usernameProperty) && !isPropertyEmpty(passswordProperty)) {
-                    youTrackServer = new YouTrackServer(urlProperty.getValue(),
-                        usernameProperty.getValue(), passswordProperty.getValue());
-                } else {
-                    youTrackServer = new YouTrackServer(urlProperty.getValue());
-                }
-                youTrackServers.put(idProperty.getValue(), youTrackServer);
-            }
-        }
-        if (youTrackServers.isEmpty()) {
-            youTrackServers = null;
-        }
-        return youTrackServers;
-    }
-
-    private boolean isPropertyEmpty(BaseProperty property)
-    {
-        return property == null || isEmpty(property.getValue());
-    }
-
-    private List<BaseObject> getYouTrackServerBaseObjects() throws XWikiException
-    {
-        List<BaseObject> youTrackServerObjects = new ArrayList<>();
-
-        DocumentReference documentReference = getFailsafeDocumentReference();
-        LocalDocumentReference classReference = getClassReference();
-        if (documentReference != null && classReference != null) {
-            XWikiContext xcontext = this.xcontextProvider.get();
-            XWikiDocument document = xcontext.getWiki().getDocument(this.getDocumentReference(), xcontext);
-            for (BaseObject baseObject : document.getXObjects(classReference)) {
-                if (baseObject != null) {
-                    youTrackServerObjects.add(baseObject);
-                }
-            }
-        }
-        return youTrackServerObjects;
+        Map<String, YouTrackServer> youTrackServers = this.serverSnapshots.getServers();
+        return youTrackServers.isEmpty() ? null : youTrackServers;
     }
 }
@@ -0,0 +1,101 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.config.internal;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.config.YouTrackServersChangedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rebuilds the snapshot of the YouTrack servers of a wiki when its {@code YouTrack.YouTrackConfig} document is saved or
+ * deleted, and sends a {@link YouTrackServersChangedEvent} with the servers which were modified or removed.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component
+@Named(YouTrackConfigListener.NAME)
+@Singleton
+public class YouTrackConfigListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "YouTrackConfigListener";
+
+    @Inject
+    private YouTrackServerSnapshots serverSnapshots;
+
+    @Inject
+    private Provider<ObservationManager> observationManagerProvider;
+
+    /**
+     * Default constructor.
+     */
+    public YouTrackConfigListener()
+    {
+        super(NAME, new DocumentCreatedEvent(), new DocumentUpdatedEvent(), new DocumentDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        XWikiDocument document = (XWikiDocument) source;
+        DocumentReference documentReference = document.getDocumentReference();
+        if (!YouTrackConfigClassDocumentConfigurationSource.DOC_REFERENCE
+            .equals(documentReference.getLocalDocumentReference())) {
+            return;
+        }
+
+        String wikiId = documentReference.getWikiReference().getName();
+        Map<String, YouTrackServer> previousServers = this.serverSnapshots.update(document);
+        if (previousServers != null) {
+            Set<YouTrackServer> currentServers = new HashSet<>(this.serverSnapshots.getServers(wikiId).values());
+            List<YouTrackServer> changedServers = new ArrayList<>();
+            for (YouTrackServer server : previousServers.values()) {
+                if (!currentServers.contains(server)) {
+                    changedServers.add(server);
+                }
+            }
+            if (!changedServers.isEmpty()) {
+                this.observationManagerProvider.get().notify(new YouTrackServersChangedEvent(), wikiId,
+                    changedServers);
+            }
+        }
+    }
+}
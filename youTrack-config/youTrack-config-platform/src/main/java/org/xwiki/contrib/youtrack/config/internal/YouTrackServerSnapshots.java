@@ -0,0 +1,164 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.config.internal;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Holds, for each wiki, an immutable snapshot of the YouTrack servers defined by the
+ * {@code YouTrack.YouTrackConfigClass} xobjects of its {@code YouTrack.YouTrackConfig} document. The snapshot is read
+ * on first use and then only rebuilt when the configuration document changes (see {@link YouTrackConfigListener}),
+ * instead of converting the xobjects each time a macro needs the servers.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component(roles = {YouTrackServerSnapshots.class})
+@Singleton
+public class YouTrackServerSnapshots
+{
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The servers, indexed by wiki id and then by server id.
+     */
+    private final Map<String, Map<String, YouTrackServer>> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * @return the YouTrack servers configured in the current wiki, indexed by id
+     */
+    public Map<String, YouTrackServer> getServers()
+    {
+        return getServers(this.xcontextProvider.get().getWikiId());
+    }
+
+    /**
+     * @param wikiId the identifier of the wiki
+     * @return the YouTrack servers configured in the passed wiki, indexed by id
+     */
+    public Map<String, YouTrackServer> getServers(String wikiId)
+    {
+        Map<String, YouTrackServer> servers = this.snapshots.get(wikiId);
+        if (servers == null) {
+            XWikiContext xcontext = this.xcontextProvider.get();
+            try {
+                XWikiDocument document = xcontext.getWiki().getDocument(
+                    new DocumentReference(YouTrackConfigClassDocumentConfigurationSource.DOC_REFERENCE,
+                        new WikiReference(wikiId)), xcontext);
+                servers = read(document);
+                // Return the snapshot of the concurrent update, if any, since it holds the latest servers.
+                Map<String, YouTrackServer> currentServers = this.snapshots.putIfAbsent(wikiId, servers);
+                if (currentServers != null) {
+                    servers = currentServers;
+                }
+            } catch (XWikiException e) {
+                // Don't keep the snapshot so that the document is read again next time.
+                this.logger.warn("Failed to read the YouTrack servers of wiki [{}]. Root cause: [{}]", wikiId,
+                    e.getMessage());
+                servers = Collections.emptyMap();
+            }
+        }
+        return servers;
+    }
+
+    /**
+     * Rebuild the snapshot of the wiki of the passed configuration document.
+     *
+     * @param document the new version of the {@code YouTrack.YouTrackConfig} document
+     * @return the previous snapshot, or {@code null} if the servers of the wiki were not used since the last change
+     */
+    public Map<String, YouTrackServer> update(XWikiDocument document)
+    {
+        return this.snapshots.put(document.getDocumentReference().getWikiReference().getName(), read(document));
+    }
+
+    private Map<String, YouTrackServer> read(XWikiDocument document)
+    {
+        Map<String, YouTrackServer> servers = new LinkedHashMap<>();
+        for (BaseObject baseObject : document
+            .getXObjects(YouTrackConfigClassDocumentConfigurationSource.CLASS_REFERENCE)) {
+            if (baseObject != null) {
+                String id = getStringValue(baseObject, "id");
+                String url = getStringValue(baseObject, "url");
+                if (!StringUtils.isEmpty(id) && !StringUtils.isEmpty(url)) {
+                    servers.put(id, read(baseObject, url));
+                }
+            }
+        }
+        return Collections.unmodifiableMap(servers);
+    }
+
+    private YouTrackServer read(BaseObject baseObject, String url)
+    {
+        YouTrackServer.Builder builder = new YouTrackServer.Builder(url);
+        String username = getStringValue(baseObject, "username");
+        String password = getStringValue(baseObject, "password");
+        if (!StringUtils.isEmpty(username) && !StringUtils.isEmpty(password)) {
+            builder.setCredentials(username, password);
+        }
+        setIntValue(baseObject, "connectTimeout", builder::setConnectTimeout);
+        setIntValue(baseObject, "readTimeout", builder::setReadTimeout);
+        setIntValue(baseObject, "connectionRequestTimeout", builder::setConnectionRequestTimeout);
+        setIntValue(baseObject, "maxConnections", builder::setMaxConnections);
+        setIntValue(baseObject, "maxConcurrentRequests", builder::setMaxConcurrentRequests);
+        setIntValue(baseObject, "requestRate", builder::setRequestRate);
+        setIntValue(baseObject, "requestBurst", builder::setRequestBurst);
+        setIntValue(baseObject, "cacheLifespan", builder::setCacheLifespan);
+        return builder.build();
+    }
+
+    private String getStringValue(BaseObject baseObject, String propertyName)
+    {
+        BaseProperty property = (BaseProperty) baseObject.getField(propertyName);
+        return property != null && property.getValue() instanceof String ? (String) property.getValue() : null;
+    }
+
+    private void setIntValue(BaseObject baseObject, String propertyName, IntConsumer setter)
+    {
+        // Empty number properties keep the server default value.
+        BaseProperty property = (BaseProperty) baseObject.getField(propertyName);
+        if (property != null && property.getValue() instanceof Number) {
+            setter.accept(((Number) property.getValue()).intValue());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.config.internal;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.config.YouTrackServersChangedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link YouTrackConfigListener}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackConfigListenerTest
+{
+    @Rule
+    public MockitoComponentMockingRule<YouTrackConfigListener> mocker =
+        new MockitoComponentMockingRule<>(YouTrackConfigListener.class);
+
+    private final XWikiDocument configDocument = new XWikiDocument(
+        new DocumentReference(YouTrackConfigClassDocumentConfigurationSource.DOC_REFERENCE, new WikiReference("wiki")));
+
+    private final YouTrackServer first = new YouTrackServer("http://first");
+
+    private final YouTrackServer second = new YouTrackServer("http://second");
+
+    private YouTrackServerSnapshots serverSnapshots;
+
+    private ObservationManager observationManager;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.serverSnapshots = this.mocker.getInstance(YouTrackServerSnapshots.class);
+        this.observationManager = this.mocker.getInstance(ObservationManager.class);
+    }
+
+    @Test
+    public void notifyTheModifiedAndRemovedServers() throws Exception
+    {
+        when(this.serverSnapshots.update(this.configDocument))
+            .thenReturn(servers(this.first, this.second, new YouTrackServer("http://removed")));
+        YouTrackServer modifiedSecond = new YouTrackServer.Builder("http://second").setReadTimeout(1).build();
+        when(this.serverSnapshots.getServers("wiki")).thenReturn(servers(this.first, modifiedSecond));
+
+        this.mocker.getComponentUnderTest().onEvent(new DocumentUpdatedEvent(), this.configDocument, null);
+
+        verify(this.observationManager).notify(any(YouTrackServersChangedEvent.class), eq("wiki"),
+            eq(Arrays.asList(this.second, new YouTrackServer("http://removed"))));
+    }
+
+    @Test
+    public void noNotificationWhenTheServersAreUnchanged() throws Exception
+    {
+        when(this.serverSnapshots.update(this.configDocument)).thenReturn(servers(this.first, this.second));
+        when(this.serverSnapshots.getServers("wiki"))
+            .thenReturn(servers(this.first, new YouTrackServer("http://second")));
+
+        this.mocker.getComponentUnderTest().onEvent(new DocumentUpdatedEvent(), this.configDocument, null);
+
+        verify(this.observationManager, never()).notify(any(), any(), any());
+    }
+
+    @Test
+    public void noNotificationWhenTheServersWereNotUsed() throws Exception
+    {
+        this.mocker.getComponentUnderTest().onEvent(new DocumentUpdatedEvent(), this.configDocument, null);
+
+        verify(this.serverSnapshots).update(this.configDocument);
+        verify(this.observationManager, never()).notify(any(), any(), any());
+    }
+
+    @Test
+    public void ignoreOtherDocuments() throws Exception
+    {
+        XWikiDocument document = new XWikiDocument(new DocumentReference("wiki", "Space", "Page"));
+
+        this.mocker.getComponentUnderTest().onEvent(new DocumentUpdatedEvent(), document, null);
+
+        verify(this.serverSnapshots, never()).update(any());
+        verify(this.observationManager, never()).notify(any(), any(), any());
+    }
+
+    private Map<String, YouTrackServer> servers(YouTrackServer... servers)
+    {
+        Map<String, YouTrackServer> serversById = new LinkedHashMap<>();
+        for (YouTrackServer server : servers) {
+            serversById.put(server.getURL(), server);
+        }
+        return Collections.unmodifiableMap(serversById);
+    }
+}
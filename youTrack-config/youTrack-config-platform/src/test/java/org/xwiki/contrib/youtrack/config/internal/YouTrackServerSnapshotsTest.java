@@ -0,0 +1,173 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.config.internal;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import javax.inject.Provider;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link YouTrackServerSnapshots}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackServerSnapshotsTest
+{
+    @Rule
+    public MockitoComponentMockingRule<YouTrackServerSnapshots> mocker =
+        new MockitoComponentMockingRule<>(YouTrackServerSnapshots.class);
+
+    private final DocumentReference configReference =
+        new DocumentReference(YouTrackConfigClassDocumentConfigurationSource.DOC_REFERENCE, new WikiReference("wiki"));
+
+    private XWiki xwiki;
+
+    private XWikiContext xcontext;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.xcontext = mock(XWikiContext.class);
+        this.xwiki = mock(XWiki.class);
+        when(this.xcontext.getWiki()).thenReturn(this.xwiki);
+        when(this.xcontext.getWikiId()).thenReturn("wiki");
+        Provider<XWikiContext> xcontextProvider =
+            this.mocker.getInstance(new DefaultParameterizedType(null, Provider.class, XWikiContext.class));
+        when(xcontextProvider.get()).thenReturn(this.xcontext);
+    }
+
+    @Test
+    public void getServersReadsTheConfigurationOnce() throws Exception
+    {
+        XWikiDocument document = document(server("first", "http://first", 5), server("second", null, 0),
+            server("third", "http://third", 0));
+        when(this.xwiki.getDocument(this.configReference, this.xcontext)).thenReturn(document);
+        YouTrackServerSnapshots snapshots = this.mocker.getComponentUnderTest();
+
+        Map<String, YouTrackServer> servers = snapshots.getServers();
+
+        // The servers without URL are ignored.
+        assertEquals(Arrays.asList("first", "third"), Arrays.asList(servers.keySet().toArray()));
+        assertEquals("http://first", servers.get("first").getURL());
+        assertEquals(5, servers.get("first").getMaxConcurrentRequests());
+        assertSame(servers, snapshots.getServers("wiki"));
+        verify(this.xwiki, times(1)).getDocument(this.configReference, this.xcontext);
+    }
+
+    @Test
+    public void getServersReturnsTheConcurrentUpdate() throws Exception
+    {
+        XWikiDocument oldDocument = document(server("first", "http://old", 0));
+        XWikiDocument newDocument = document(server("first", "http://new", 0));
+        YouTrackServerSnapshots snapshots = this.mocker.getComponentUnderTest();
+        // The configuration is modified while its previous version is being read.
+        when(this.xwiki.getDocument(this.configReference, this.xcontext)).thenAnswer(invocation -> {
+            assertNull(snapshots.update(newDocument));
+            return oldDocument;
+        });
+
+        assertEquals("http://new", snapshots.getServers("wiki").get("first").getURL());
+        assertEquals("http://new", snapshots.getServers("wiki").get("first").getURL());
+    }
+
+    @Test
+    public void updateReturnsThePreviousSnapshot() throws Exception
+    {
+        XWikiDocument document = document(server("first", "http://first", 0));
+        when(this.xwiki.getDocument(this.configReference, this.xcontext)).thenReturn(document);
+        YouTrackServerSnapshots snapshots = this.mocker.getComponentUnderTest();
+
+        Map<String, YouTrackServer> servers = snapshots.getServers("wiki");
+        assertSame(servers, snapshots.update(document(server("first", "http://modified", 0))));
+
+        assertEquals("http://modified", snapshots.getServers("wiki").get("first").getURL());
+        verify(this.xwiki, times(1)).getDocument(this.configReference, this.xcontext);
+    }
+
+    @Test
+    public void getServersWhenTheConfigurationCannotBeRead() throws Exception
+    {
+        when(this.xwiki.getDocument(eq(this.configReference), any(XWikiContext.class)))
+            .thenThrow(new XWikiException());
+        YouTrackServerSnapshots snapshots = this.mocker.getComponentUnderTest();
+
+        assertTrue(snapshots.getServers("wiki").isEmpty());
+        // The document is read again next time.
+        assertTrue(snapshots.getServers("wiki").isEmpty());
+        verify(this.xwiki, times(2)).getDocument(this.configReference, this.xcontext);
+    }
+
+    private XWikiDocument document(BaseObject... serverObjects)
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(this.configReference);
+        when(document.getXObjects(YouTrackConfigClassDocumentConfigurationSource.CLASS_REFERENCE))
+            .thenReturn(Arrays.asList(serverObjects));
+        return document;
+    }
+
+    private BaseObject server(String id, String url, int maxConcurrentRequests)
+    {
+        BaseObject serverObject = mock(BaseObject.class);
+        BaseProperty idProperty = property(id);
+        when(serverObject.getField("id")).thenReturn(idProperty);
+        BaseProperty urlProperty = property(url);
+        when(serverObject.getField("url")).thenReturn(urlProperty);
+        if (maxConcurrentRequests > 0) {
+            BaseProperty maxConcurrentRequestsProperty = property(maxConcurrentRequests);
+            when(serverObject.getField("maxConcurrentRequests")).thenReturn(maxConcurrentRequestsProperty);
+        }
+        return serverObject;
+    }
+
+    private BaseProperty property(Object value)
+    {
+        BaseProperty property = mock(BaseProperty.class);
+        when(property.getValue()).thenReturn(value);
+        return property;
+    }
+}
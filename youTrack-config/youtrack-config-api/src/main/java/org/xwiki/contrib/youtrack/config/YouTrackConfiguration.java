@@ -32,6 +32,118 @@ import java.util.Map;
 @Role
 public interface YouTrackConfiguration
 {
+    /**
+     * Default number of seconds during which a fetched YouTrack issue is reused instead of being fetched again.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_ISSUE_CACHE_LIFESPAN = 300;
+
+    /**
+     * Default maximum number of YouTrack issues kept in cache.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_ISSUE_CACHE_SIZE = 1000;
+
+    /**
+     * Default number of seconds during which a jql query result is reused without being refreshed.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_QUERY_CACHE_LIFESPAN = 60;
+
+    /**
+     * Default number of seconds during which an expired jql query result can still be displayed while it's refreshed.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_QUERY_CACHE_MAX_STALE = 600;
+
+    /**
+     * Default maximum number of jql query results kept in cache.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_QUERY_CACHE_SIZE = 100;
+
+    /**
+     * Default number of seconds during which the rendered result of a YouTrack macro is reused.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_RENDERING_CACHE_LIFESPAN = 300;
+
+    /**
+     * Default number of milliseconds during which concurrent issue lookups are collected into a single query.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_ISSUE_BATCH_WINDOW = 5;
+
+    /**
+     * Default maximum number of issues fetched by a single collected query.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_ISSUE_BATCH_SIZE = 50;
+
+    /**
+     * Default maximum number of issues fetched at the same time when the issues of a list are fetched one by one.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_ISSUE_FETCH_PARALLELISM = 4;
+
+    /**
+     * Default percentage of failed requests above which calls to a YouTrack server are suspended.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE = 50;
+
+    /**
+     * Default number of recent requests used to compute the failure rate of a YouTrack server.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_CIRCUIT_BREAKER_WINDOW = 10;
+
+    /**
+     * Default number of seconds during which calls to a failing YouTrack server are suspended.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_CIRCUIT_BREAKER_COOL_DOWN = 30;
+
+    /**
+     * Default number of successful trial requests needed to resume the calls to a YouTrack server.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_CIRCUIT_BREAKER_PROBES = 3;
+
+    /**
+     * Default maximum number of attempts for a request failing with a transient error.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_RETRY_MAX_ATTEMPTS = 3;
+
+    /**
+     * Default number of milliseconds the backoff between two attempts of a request is based on.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_RETRY_DELAY = 250;
+
+    /**
+     * Default number of milliseconds after which a failing request is not retried anymore.
+     *
+     * @since 1.1
+     */
+    int DEFAULT_RETRY_DEADLINE = 10000;
+
     /**
      * @return the map of YouTrack server definitions, indexed by some id representing each of them. This id can then be
      *         used as a parameter of the Macro to point to a given YouTrack server
@@ -45,4 +157,185 @@ public interface YouTrackConfiguration
     {
         return false;
     }
+
+    /**
+     * @return true if the rendered result of the YouTrack macro can be cached (only when displayed asynchronously)
+     * @since 1.1
+     */
+    default boolean isRenderingCacheEnabled()
+    {
+        return false;
+    }
+
+    /**
+     * @return the number of seconds during which the cached rendered result of a YouTrack macro is reused (unless the
+     *         macro call is modified), counted from the moment it was rendered
+     * @since 1.1
+     */
+    default int getRenderingCacheLifespan()
+    {
+        return DEFAULT_RENDERING_CACHE_LIFESPAN;
+    }
+
+    /**
+     * @return the number of seconds during which a fetched YouTrack issue is reused instead of being fetched again,
+     *         {@code 0} to disable the issue cache
+     * @since 1.1
+     */
+    default int getIssueCacheLifespan()
+    {
+        return DEFAULT_ISSUE_CACHE_LIFESPAN;
+    }
+
+    /**
+     * @return the maximum number of YouTrack issues kept in cache
+     * @since 1.1
+     */
+    default int getIssueCacheSize()
+    {
+        return DEFAULT_ISSUE_CACHE_SIZE;
+    }
+
+    /**
+     * @return the number of seconds during which a jql query result is reused without being refreshed, {@code 0} to
+     *         disable the query cache
+     * @since 1.1
+     */
+    default int getQueryCacheLifespan()
+    {
+        return DEFAULT_QUERY_CACHE_LIFESPAN;
+    }
+
+    /**
+     * @return the number of seconds after its expiration during which a jql query result is still displayed, while
+     *         being refreshed in the background. {@code 0} to always wait for the refreshed result
+     * @since 1.1
+     */
+    default int getQueryCacheMaxStale()
+    {
+        return DEFAULT_QUERY_CACHE_MAX_STALE;
+    }
+
+    /**
+     * @return the maximum number of jql query results kept in cache
+     * @since 1.1
+     */
+    default int getQueryCacheSize()
+    {
+        return DEFAULT_QUERY_CACHE_SIZE;
+    }
+
+    /**
+     * @return the number of milliseconds during which the issue lookups made concurrently on the same YouTrack server
+     *         are collected before being sent as a single {@code issue id:} query, {@code 0} to send each lookup on
+     *         its own
+     * @since 1.1
+     */
+    default int getIssueBatchWindow()
+    {
+        return DEFAULT_ISSUE_BATCH_WINDOW;
+    }
+
+    /**
+     * @return the maximum number of issues collected into a single {@code issue id:} query, the query being sent
+     *         before the end of the window once this size is reached
+     * @since 1.1
+     */
+    default int getIssueBatchSize()
+    {
+        return DEFAULT_ISSUE_BATCH_SIZE;
+    }
+
+    /**
+     * @return the maximum number of issues of a list fetched at the same time from a YouTrack server when they are
+     *         fetched one by one (i.e. when the {@code source.list.batch} parameter is {@code false}), {@code 1} to
+     *         fetch them sequentially
+     * @since 1.1
+     */
+    default int getIssueFetchParallelism()
+    {
+        return DEFAULT_ISSUE_FETCH_PARALLELISM;
+    }
+
+    /**
+     * @return the percentage of failed requests (among the last {@link #getCircuitBreakerWindow()} ones) above
+     *         which the calls to a YouTrack server are suspended during {@link #getCircuitBreakerCoolDown()} seconds,
+     *         {@code 0} to never suspend them
+     * @since 1.1
+     */
+    default int getCircuitBreakerFailureRate()
+    {
+        return DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE;
+    }
+
+    /**
+     * @return the number of recent requests used to compute the failure rate of a YouTrack server, which is only
+     *         evaluated once that many requests have been sent
+     * @since 1.1
+     */
+    default int getCircuitBreakerWindow()
+    {
+        return DEFAULT_CIRCUIT_BREAKER_WINDOW;
+    }
+
+    /**
+     * @return the number of seconds during which the calls to a failing YouTrack server are suspended, before trying
+     *         again with {@link #getCircuitBreakerProbes()} requests
+     * @since 1.1
+     */
+    default int getCircuitBreakerCoolDown()
+    {
+        return DEFAULT_CIRCUIT_BREAKER_COOL_DOWN;
+    }
+
+    /**
+     * @return the number of trial requests sent to a YouTrack server once the cool down is over, all of them having to
+     *         succeed for the calls to the server to resume
+     * @since 1.1
+     */
+    default int getCircuitBreakerProbes()
+    {
+        return DEFAULT_CIRCUIT_BREAKER_PROBES;
+    }
+
+    /**
+     * @return the maximum number of times a request failing with a transient error (connection error, {@code 429} or
+     *         {@code 503} response) is sent, {@code 1} to never retry it
+     * @since 1.1
+     */
+    default int getRetryMaxAttempts()
+    {
+        return DEFAULT_RETRY_MAX_ATTEMPTS;
+    }
+
+    /**
+     * @return the number of milliseconds the backoff between two attempts of a request is based on: the delay before
+     *         the attempt {@code n} is randomly picked below {@code retryDelay * 2^(n-1)}, unless the server asked
+     *         for a specific delay with a {@code Retry-After} header
+     * @since 1.1
+     */
+    default int getRetryDelay()
+    {
+        return DEFAULT_RETRY_DELAY;
+    }
+
+    /**
+     * @return the number of milliseconds, counted from the first attempt, after which a failing request is not retried
+     *         anymore
+     * @since 1.1
+     */
+    default int getRetryDeadline()
+    {
+        return DEFAULT_RETRY_DEADLINE;
+    }
+
+    /**
+     * @return true if a small request should be sent to each configured YouTrack server when the wiki starts, to open
+     *         the connections and validate the credentials before the first page displaying YouTrack issues
+     * @since 1.1
+     */
+    default boolean isWarmUpEnabled()
+    {
+        return false;
+    }
 }
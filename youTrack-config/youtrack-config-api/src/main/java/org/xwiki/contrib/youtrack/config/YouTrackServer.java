@@ -19,19 +19,96 @@
  */
 package org.xwiki.contrib.youtrack.config;
 
+import java.util.Objects;
+
 /**
- * Represents all data related to a YouTrack server: url and credentials to access it.
+ * Represents all data related to a YouTrack server: url and credentials to access it, along with the limits to apply
+ * when calling it. Instances are immutable, see {@link Builder} to create a server with specific settings.
  *
  * @version $Id$
  * @since 8.2
  */
 public class YouTrackServer
 {
-    private String url;
+    /**
+     * Default number of milliseconds to wait for a connection to the server to be established.
+     *
+     * @since 1.1
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+    /**
+     * Default number of milliseconds to wait for data from the server.
+     *
+     * @since 1.1
+     */
+    public static final int DEFAULT_READ_TIMEOUT = 30000;
+
+    /**
+     * Default number of milliseconds to wait for a pooled connection to the server to be available.
+     *
+     * @since 1.1
+     */
+    public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 5000;
+
+    /**
+     * Default maximum number of pooled connections to the server.
+     *
+     * @since 1.1
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+
+    /**
+     * Default maximum number of requests sent at the same time to the server, {@code 0} meaning that only the
+     * connection pool limits them.
+     *
+     * @since 1.1
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 0;
+
+    /**
+     * Default maximum number of requests per second sent to the server, {@code 0} meaning no limit.
+     *
+     * @since 1.1
+     */
+    public static final int DEFAULT_REQUEST_RATE = 0;
+
+    /**
+     * Default number of requests that can be sent at once to the server, on top of the request rate, {@code 0}
+     * meaning that it's the same as the request rate.
+     *
+     * @since 1.1
+     */
+    public static final int DEFAULT_REQUEST_BURST = 0;
+
+    /**
+     * Default cache lifespan, a negative value meaning that the global cache configuration applies.
+     *
+     * @since 1.1
+     */
+    public static final int DEFAULT_CACHE_LIFESPAN = -1;
+
+    private final String url;
+
+    private final String username;
+
+    private final String password;
+
+    private final int connectTimeout;
+
+    private final int readTimeout;
+
+    private final int connectionRequestTimeout;
 
-    private String username;
+    private final int maxConnections;
 
-    private String password;
+    private final int maxConcurrentRequests;
+
+    private final int requestRate;
+
+    private final int requestBurst;
+
+    private final int cacheLifespan;
 
     /**
      * Public-access YouTrack server.
@@ -40,7 +117,7 @@ public class YouTrackServer
      */
     public YouTrackServer(String url)
     {
-        this.url = url;
+        this(url, null, null);
     }
 
     /**
@@ -52,17 +129,30 @@ public class YouTrackServer
      */
     public YouTrackServer(String url, String username, String password)
     {
-        this(url);
-        this.username = username;
-        this.password = password;
+        this(new Builder(url).setCredentials(username, password));
+    }
+
+    private YouTrackServer(Builder builder)
+    {
+        this.url = normalizeURL(builder.url);
+        this.username = builder.username;
+        this.password = builder.password;
+        this.connectTimeout = builder.connectTimeout;
+        this.readTimeout = builder.readTimeout;
+        this.connectionRequestTimeout = builder.connectionRequestTimeout;
+        this.maxConnections = builder.maxConnections;
+        this.maxConcurrentRequests = builder.maxConcurrentRequests;
+        this.requestRate = builder.requestRate;
+        this.requestBurst = builder.requestBurst;
+        this.cacheLifespan = builder.cacheLifespan;
     }
 
     /**
-     * @return the YouTrack server's url prefix (e.g. {@code http://youtrack.xwiki.org})
+     * @return the YouTrack server's url prefix (e.g. {@code http://youtrack.xwiki.org}), without trailing slash
      */
     public String getURL()
     {
-        return this.url.replaceAll("/$", "");
+        return this.url;
     }
 
     /**
@@ -80,4 +170,259 @@ public class YouTrackServer
     {
         return this.password;
     }
+
+    /**
+     * @return the number of milliseconds to wait for a connection to the server to be established, {@code 0} to wait
+     *         indefinitely
+     * @since 1.1
+     */
+    public int getConnectTimeout()
+    {
+        return this.connectTimeout;
+    }
+
+    /**
+     * @return the number of milliseconds to wait for data from the server, {@code 0} to wait indefinitely
+     * @since 1.1
+     */
+    public int getReadTimeout()
+    {
+        return this.readTimeout;
+    }
+
+    /**
+     * @return the number of milliseconds to wait for a pooled connection to the server (or for a request slot, see
+     *         {@link #getMaxConcurrentRequests()}) to be available, {@code 0} to wait indefinitely
+     * @since 1.1
+     */
+    public int getConnectionRequestTimeout()
+    {
+        return this.connectionRequestTimeout;
+    }
+
+    /**
+     * @return the maximum number of pooled connections to the server
+     * @since 1.1
+     */
+    public int getMaxConnections()
+    {
+        return this.maxConnections;
+    }
+
+    /**
+     * @return the maximum number of requests sent at the same time to the server, {@code 0} to only be limited by
+     *         {@link #getMaxConnections()}
+     * @since 1.1
+     */
+    public int getMaxConcurrentRequests()
+    {
+        return this.maxConcurrentRequests;
+    }
+
+    /**
+     * @return the maximum number of requests per second sent to the server, {@code 0} for no limit. Requests above
+     *         this rate are delayed, or rejected when they would have to wait more than
+     *         {@link #getConnectionRequestTimeout()}
+     * @since 1.1
+     */
+    public int getRequestRate()
+    {
+        return this.requestRate;
+    }
+
+    /**
+     * @return the maximum number of requests that can be sent at once to the server after a quiet period, without
+     *         being delayed by {@link #getRequestRate()}. {@code 0} to use the request rate
+     * @since 1.1
+     */
+    public int getRequestBurst()
+    {
+        return this.requestBurst;
+    }
+
+    /**
+     * @return the number of seconds during which the data fetched from the server is cached, {@code 0} to not cache
+     *         it and a negative value to use the global cache configuration. It cannot exceed the global cache
+     *         lifespans
+     * @since 1.1
+     */
+    public int getCacheLifespan()
+    {
+        return this.cacheLifespan;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(this.url, this.username, this.password, this.connectTimeout, this.readTimeout,
+            this.connectionRequestTimeout, this.maxConnections, this.maxConcurrentRequests, this.requestRate,
+            this.requestBurst, this.cacheLifespan);
+    }
+
+    @Override
+    public boolean equals(Object object)
+    {
+        if (this == object) {
+            return true;
+        }
+        if (object == null || getClass() != object.getClass()) {
+            return false;
+        }
+        YouTrackServer other = (YouTrackServer) object;
+        return Objects.equals(this.url, other.url) && Objects.equals(this.username, other.username)
+            && Objects.equals(this.password, other.password) && this.connectTimeout == other.connectTimeout
+            && this.readTimeout == other.readTimeout && this.connectionRequestTimeout == other.connectionRequestTimeout
+            && this.maxConnections == other.maxConnections && this.maxConcurrentRequests == other.maxConcurrentRequests
+            && this.requestRate == other.requestRate && this.requestBurst == other.requestBurst
+            && this.cacheLifespan == other.cacheLifespan;
+    }
+
+    private static String normalizeURL(String url)
+    {
+        // The URL is normalized once since it's used to build all the requests sent to the server.
+        int end = url.length();
+        while (end > 0 && url.charAt(end - 1) == '/') {
+            end--;
+        }
+        return url.substring(0, end);
+    }
+
+    /**
+     * Builds a YouTrack server with specific settings, the settings which are not set keeping their default value.
+     *
+     * @version $Id$
+     * @since 1.1
+     */
+    public static class Builder
+    {
+        private final String url;
+
+        private String username;
+
+        private String password;
+
+        private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+
+        private int readTimeout = DEFAULT_READ_TIMEOUT;
+
+        private int connectionRequestTimeout = DEFAULT_CONNECTION_REQUEST_TIMEOUT;
+
+        private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+        private int maxConcurrentRequests = DEFAULT_MAX_CONCURRENT_REQUESTS;
+
+        private int requestRate = DEFAULT_REQUEST_RATE;
+
+        private int requestBurst = DEFAULT_REQUEST_BURST;
+
+        private int cacheLifespan = DEFAULT_CACHE_LIFESPAN;
+
+        /**
+         * @param url see {@link YouTrackServer#getURL()}
+         */
+        public Builder(String url)
+        {
+            this.url = url;
+        }
+
+        /**
+         * @param username see {@link YouTrackServer#getUsername()}
+         * @param password see {@link YouTrackServer#getPassword()}
+         * @return this builder
+         */
+        public Builder setCredentials(String username, String password)
+        {
+            this.username = username;
+            this.password = password;
+            return this;
+        }
+
+        /**
+         * @param connectTimeout see {@link YouTrackServer#getConnectTimeout()}
+         * @return this builder
+         */
+        public Builder setConnectTimeout(int connectTimeout)
+        {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param readTimeout see {@link YouTrackServer#getReadTimeout()}
+         * @return this builder
+         */
+        public Builder setReadTimeout(int readTimeout)
+        {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * @param connectionRequestTimeout see {@link YouTrackServer#getConnectionRequestTimeout()}
+         * @return this builder
+         */
+        public Builder setConnectionRequestTimeout(int connectionRequestTimeout)
+        {
+            this.connectionRequestTimeout = connectionRequestTimeout;
+            return this;
+        }
+
+        /**
+         * @param maxConnections see {@link YouTrackServer#getMaxConnections()}
+         * @return this builder
+         */
+        public Builder setMaxConnections(int maxConnections)
+        {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * @param maxConcurrentRequests see {@link YouTrackServer#getMaxConcurrentRequests()}
+         * @return this builder
+         */
+        public Builder setMaxConcurrentRequests(int maxConcurrentRequests)
+        {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * @param requestRate see {@link YouTrackServer#getRequestRate()}
+         * @return this builder
+         */
+        public Builder setRequestRate(int requestRate)
+        {
+            this.requestRate = requestRate;
+            return this;
+        }
+
+        /**
+         * @param requestBurst see {@link YouTrackServer#getRequestBurst()}
+         * @return this builder
+         */
+        public Builder setRequestBurst(int requestBurst)
+        {
+            this.requestBurst = requestBurst;
+            return this;
+        }
+
+        /**
+         * @param cacheLifespan see {@link YouTrackServer#getCacheLifespan()}
+         * @return this builder
+         */
+        public Builder setCacheLifespan(int cacheLifespan)
+        {
+            this.cacheLifespan = cacheLifespan;
+            return this;
+        }
+
+        /**
+         * @return the YouTrack server
+         */
+        public YouTrackServer build()
+        {
+            return new YouTrackServer(this);
+        }
+    }
 }
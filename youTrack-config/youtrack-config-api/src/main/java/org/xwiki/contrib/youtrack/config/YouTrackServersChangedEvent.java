@@ -0,0 +1,46 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.config;
+
+import org.xwiki.observation.event.Event;
+
+/**
+ * Sent when YouTrack servers are modified or removed from the configuration of a wiki, so that the resources tied to
+ * them (pooled connections, cached issues, etc.) can be released.
+ * <p>
+ * The event also sends the following parameters:
+ * </p>
+ * <ul>
+ * <li>source: the identifier of the wiki whose configuration changed, as a {@link String}</li>
+ * <li>data: the {@link YouTrackServer}s as they were before the change, as a
+ * {@code java.util.Collection<YouTrackServer>}</li>
+ * </ul>
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackServersChangedEvent implements Event
+{
+    @Override
+    public boolean matches(Object otherEvent)
+    {
+        return otherEvent instanceof YouTrackServersChangedEvent;
+    }
+}
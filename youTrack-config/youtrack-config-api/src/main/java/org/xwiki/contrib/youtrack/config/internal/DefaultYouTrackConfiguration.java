@@ -38,6 +38,42 @@ public class DefaultYouTrackConfiguration implements YouTrackConfiguration
 
     private boolean isAsync;
 
+    private boolean isRenderingCacheEnabled;
+
+    private int renderingCacheLifespan = DEFAULT_RENDERING_CACHE_LIFESPAN;
+
+    private int issueCacheLifespan = DEFAULT_ISSUE_CACHE_LIFESPAN;
+
+    private int issueCacheSize = DEFAULT_ISSUE_CACHE_SIZE;
+
+    private int queryCacheLifespan = DEFAULT_QUERY_CACHE_LIFESPAN;
+
+    private int queryCacheMaxStale = DEFAULT_QUERY_CACHE_MAX_STALE;
+
+    private int queryCacheSize = DEFAULT_QUERY_CACHE_SIZE;
+
+    private int issueBatchWindow = DEFAULT_ISSUE_BATCH_WINDOW;
+
+    private int issueBatchSize = DEFAULT_ISSUE_BATCH_SIZE;
+
+    private int issueFetchParallelism = DEFAULT_ISSUE_FETCH_PARALLELISM;
+
+    private int circuitBreakerFailureRate = DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE;
+
+    private int circuitBreakerWindow = DEFAULT_CIRCUIT_BREAKER_WINDOW;
+
+    private int circuitBreakerCoolDown = DEFAULT_CIRCUIT_BREAKER_COOL_DOWN;
+
+    private int circuitBreakerProbes = DEFAULT_CIRCUIT_BREAKER_PROBES;
+
+    private int retryMaxAttempts = DEFAULT_RETRY_MAX_ATTEMPTS;
+
+    private int retryDelay = DEFAULT_RETRY_DELAY;
+
+    private int retryDeadline = DEFAULT_RETRY_DEADLINE;
+
+    private boolean isWarmUpEnabled;
+
     @Override
     public Map<String, YouTrackServer> getYouTrackServers()
     {
@@ -65,4 +101,274 @@ public class DefaultYouTrackConfiguration implements YouTrackConfiguration
     {
         this.isAsync = async;
     }
+
+    @Override
+    public boolean isRenderingCacheEnabled()
+    {
+        return this.isRenderingCacheEnabled;
+    }
+
+    /**
+     * @param renderingCacheEnabled see {@link #isRenderingCacheEnabled()}
+     * @since 1.1
+     */
+    public void setRenderingCacheEnabled(boolean renderingCacheEnabled)
+    {
+        this.isRenderingCacheEnabled = renderingCacheEnabled;
+    }
+
+    @Override
+    public int getRenderingCacheLifespan()
+    {
+        return this.renderingCacheLifespan;
+    }
+
+    /**
+     * @param renderingCacheLifespan see {@link #getRenderingCacheLifespan()}
+     * @since 1.1
+     */
+    public void setRenderingCacheLifespan(int renderingCacheLifespan)
+    {
+        this.renderingCacheLifespan = renderingCacheLifespan;
+    }
+
+    @Override
+    public int getIssueCacheLifespan()
+    {
+        return this.issueCacheLifespan;
+    }
+
+    /**
+     * @param issueCacheLifespan see {@link #getIssueCacheLifespan()}
+     * @since 1.1
+     */
+    public void setIssueCacheLifespan(int issueCacheLifespan)
+    {
+        this.issueCacheLifespan = issueCacheLifespan;
+    }
+
+    @Override
+    public int getIssueCacheSize()
+    {
+        return this.issueCacheSize;
+    }
+
+    /**
+     * @param issueCacheSize see {@link #getIssueCacheSize()}
+     * @since 1.1
+     */
+    public void setIssueCacheSize(int issueCacheSize)
+    {
+        this.issueCacheSize = issueCacheSize;
+    }
+
+    @Override
+    public int getQueryCacheLifespan()
+    {
+        return this.queryCacheLifespan;
+    }
+
+    /**
+     * @param queryCacheLifespan see {@link #getQueryCacheLifespan()}
+     * @since 1.1
+     */
+    public void setQueryCacheLifespan(int queryCacheLifespan)
+    {
+        this.queryCacheLifespan = queryCacheLifespan;
+    }
+
+    @Override
+    public int getQueryCacheMaxStale()
+    {
+        return this.queryCacheMaxStale;
+    }
+
+    /**
+     * @param queryCacheMaxStale see {@link #getQueryCacheMaxStale()}
+     * @since 1.1
+     */
+    public void setQueryCacheMaxStale(int queryCacheMaxStale)
+    {
+        this.queryCacheMaxStale = queryCacheMaxStale;
+    }
+
+    @Override
+    public int getQueryCacheSize()
+    {
+        return this.queryCacheSize;
+    }
+
+    /**
+     * @param queryCacheSize see {@link #getQueryCacheSize()}
+     * @since 1.1
+     */
+    public void setQueryCacheSize(int queryCacheSize)
+    {
+        this.queryCacheSize = queryCacheSize;
+    }
+
+    @Override
+    public int getIssueBatchWindow()
+    {
+        return this.issueBatchWindow;
+    }
+
+    /**
+     * @param issueBatchWindow see {@link #getIssueBatchWindow()}
+     * @since 1.1
+     */
+    public void setIssueBatchWindow(int issueBatchWindow)
+    {
+        this.issueBatchWindow = issueBatchWindow;
+    }
+
+    @Override
+    public int getIssueBatchSize()
+    {
+        return this.issueBatchSize;
+    }
+
+    /**
+     * @param issueBatchSize see {@link #getIssueBatchSize()}
+     * @since 1.1
+     */
+    public void setIssueBatchSize(int issueBatchSize)
+    {
+        this.issueBatchSize = issueBatchSize;
+    }
+
+    @Override
+    public int getIssueFetchParallelism()
+    {
+        return this.issueFetchParallelism;
+    }
+
+    /**
+     * @param issueFetchParallelism see {@link #getIssueFetchParallelism()}
+     * @since 1.1
+     */
+    public void setIssueFetchParallelism(int issueFetchParallelism)
+    {
+        this.issueFetchParallelism = issueFetchParallelism;
+    }
+
+    @Override
+    public int getCircuitBreakerFailureRate()
+    {
+        return this.circuitBreakerFailureRate;
+    }
+
+    /**
+     * @param circuitBreakerFailureRate see {@link #getCircuitBreakerFailureRate()}
+     * @since 1.1
+     */
+    public void setCircuitBreakerFailureRate(int circuitBreakerFailureRate)
+    {
+        this.circuitBreakerFailureRate = circuitBreakerFailureRate;
+    }
+
+    @Override
+    public int getCircuitBreakerWindow()
+    {
+        return this.circuitBreakerWindow;
+    }
+
+    /**
+     * @param circuitBreakerWindow see {@link #getCircuitBreakerWindow()}
+     * @since 1.1
+     */
+    public void setCircuitBreakerWindow(int circuitBreakerWindow)
+    {
+        this.circuitBreakerWindow = circuitBreakerWindow;
+    }
+
+    @Override
+    public int getCircuitBreakerCoolDown()
+    {
+        return this.circuitBreakerCoolDown;
+    }
+
+    /**
+     * @param circuitBreakerCoolDown see {@link #getCircuitBreakerCoolDown()}
+     * @since 1.1
+     */
+    public void setCircuitBreakerCoolDown(int circuitBreakerCoolDown)
+    {
+        this.circuitBreakerCoolDown = circuitBreakerCoolDown;
+    }
+
+    @Override
+    public int getCircuitBreakerProbes()
+    {
+        return this.circuitBreakerProbes;
+    }
+
+    /**
+     * @param circuitBreakerProbes see {@link #getCircuitBreakerProbes()}
+     * @since 1.1
+     */
+    public void setCircuitBreakerProbes(int circuitBreakerProbes)
+    {
+        this.circuitBreakerProbes = circuitBreakerProbes;
+    }
+
+    @Override
+    public int getRetryMaxAttempts()
+    {
+        return this.retryMaxAttempts;
+    }
+
+    /**
+     * @param retryMaxAttempts see {@link #getRetryMaxAttempts()}
+     * @since 1.1
+     */
+    public void setRetryMaxAttempts(int retryMaxAttempts)
+    {
+        this.retryMaxAttempts = retryMaxAttempts;
+    }
+
+    @Override
+    public int getRetryDelay()
+    {
+        return this.retryDelay;
+    }
+
+    /**
+     * @param retryDelay see {@link #getRetryDelay()}
+     * @since 1.1
+     */
+    public void setRetryDelay(int retryDelay)
+    {
+        this.retryDelay = retryDelay;
+    }
+
+    @Override
+    public int getRetryDeadline()
+    {
+        return this.retryDeadline;
+    }
+
+    /**
+     * @param retryDeadline see {@link #getRetryDeadline()}
+     * @since 1.1
+     */
+    public void setRetryDeadline(int retryDeadline)
+    {
+        this.retryDeadline = retryDeadline;
+    }
+
+    @Override
+    public boolean isWarmUpEnabled()
+    {
+        return this.isWarmUpEnabled;
+    }
+
+    /**
+     * @param warmUpEnabled see {@link #isWarmUpEnabled()}
+     * @since 1.1
+     */
+    public void setWarmUpEnabled(boolean warmUpEnabled)
+    {
+        this.isWarmUpEnabled = warmUpEnabled;
+    }
 }
@@ -64,6 +64,10 @@ public class DefaultYouTrackConfigurationTest
         assertEquals("url", configuration.getYouTrackServers().get("key").getURL());
         assertEquals("username", configuration.getYouTrackServers().get("key").getUsername());
         assertEquals("password", configuration.getYouTrackServers().get("key").getPassword());
+        assertEquals(YouTrackServer.DEFAULT_READ_TIMEOUT,
+            configuration.getYouTrackServers().get("key").getReadTimeout());
+        assertEquals(YouTrackServer.DEFAULT_CACHE_LIFESPAN,
+            configuration.getYouTrackServers().get("key").getCacheLifespan());
 
         assertFalse(configuration.isAsync());
         configuration.setAsync(true);
@@ -42,4 +42,18 @@ public interface YouTrackDataSource
      */
     List<ItemObject> getData(String macroContent, YouTrackMacroParameters parameters)
         throws MacroExecutionException;
+
+    /**
+     * @param macroContent the macro content which contains the source definition
+     * @param parameters the macro parameters which can contain source-specific configuration information
+     * @param fields the fields that are going to be displayed, allowing the source to only fetch the data it needs
+     * @return the list of matching YouTrack issues
+     * @throws MacroExecutionException in case of an error while getting the YouTrack data
+     * @since 1.1
+     */
+    default List<ItemObject> getData(String macroContent, YouTrackMacroParameters parameters, YouTrackFields fields)
+        throws MacroExecutionException
+    {
+        return getData(macroContent, parameters);
+    }
 }
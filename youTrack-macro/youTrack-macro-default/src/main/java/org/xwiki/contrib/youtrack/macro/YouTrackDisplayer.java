@@ -49,4 +49,14 @@ public interface YouTrackDisplayer
      * @return the list of Blocks rerpesenting what to display
      */
     List<Block> display(Collection<ItemObject> issues, YouTrackMacroParameters parameters) throws MacroExecutionException;
+
+    /**
+     * @param parameters the macro parameters specified by the user
+     * @return the fields this displayer is going to display for the passed parameters
+     * @since 1.1
+     */
+    default YouTrackFields getFields(YouTrackMacroParameters parameters)
+    {
+        return parameters.getFields();
+    }
 }
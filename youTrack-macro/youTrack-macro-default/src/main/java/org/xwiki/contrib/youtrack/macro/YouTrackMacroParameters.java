@@ -118,6 +118,15 @@ public class YouTrackMacroParameters
         return this.extraParameters;
     }
 
+    /**
+     * @param maxCount see {@link #getMaxCount()}
+     */
+    @PropertyDescription("the maximum number of YouTrack issues to display (only used by the \"jql\" source)")
+    public void setMaxCount(int maxCount)
+    {
+        this.maxCount = maxCount;
+    }
+
     /**
      * @return the maximum number of YouTrack issues to display (if not specified defaults
      * to the value configured in your
@@ -25,6 +25,7 @@ import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.contrib.youtrack.macro.YouTrackDataSource;
 import org.xwiki.contrib.youtrack.macro.YouTrackDisplayer;
 import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.macro.AbstractMacro;
 import org.xwiki.rendering.macro.MacroExecutionException;
@@ -84,7 +85,10 @@ public class YouTrackMacro extends AbstractMacro<YouTrackMacroParameters>
     public List<Block> execute(YouTrackMacroParameters parameters, String content, MacroTransformationContext context)
             throws MacroExecutionException
     {
-        return getDisplayer(parameters).display(getDataSource(parameters).getData(content, parameters), parameters);
+        YouTrackDisplayer displayer = getDisplayer(parameters);
+        // Let the data source know which fields are displayed so that it only fetches what's needed.
+        List<ItemObject> issues = getDataSource(parameters).getData(content, parameters, displayer.getFields(parameters));
+        return displayer.display(issues, parameters);
     }
 
     /**
@@ -0,0 +1,188 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal;
+
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.YouTrackDataSource;
+import org.xwiki.contrib.youtrack.macro.YouTrackDisplayer;
+import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
+import org.xwiki.contrib.youtrack.macro.internal.source.ListYouTrackDataSource;
+import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackFieldProjection;
+import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackPrefetchedIssues;
+import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackServerResolver;
+import org.xwiki.properties.BeanManager;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.transformation.AbstractTransformation;
+import org.xwiki.rendering.transformation.TransformationContext;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fetches, before the macros are executed, all the issues listed by the YouTrack macros of the transformed content,
+ * with as few requests as possible: one batch per YouTrack server and per set of displayed fields. The macros then
+ * find their issues in {@link YouTrackPrefetchedIssues} instead of each querying YouTrack.
+ * <p>
+ * Only the macros using the {@code list} source (in batch mode) are prefetched since the issues matched by a jql query
+ * are only known once the query is executed. This transformation is not enabled by default: add
+ * {@code youtrackprefetch} before {@code macro} to the {@code rendering.transformations} configuration property to
+ * enable it.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component
+@Named("youtrackprefetch")
+@Singleton
+public class YouTrackPrefetchTransformation extends AbstractTransformation
+{
+    /**
+     * Executed before the macro transformation (which has a priority of 100).
+     */
+    private static final int PRIORITY = 50;
+
+    private static final String MACRO_ID = "YouTrack";
+
+    private static final String LIST_SOURCE = "list";
+
+    /**
+     * The issues to fetch from a given server with a given projection.
+     */
+    private static final class PrefetchRequest
+    {
+        private final YouTrackServer server;
+
+        private final YouTrackFieldProjection projection;
+
+        private final Set<String> issueIds = new LinkedHashSet<>();
+
+        PrefetchRequest(YouTrackServer server, YouTrackFieldProjection projection)
+        {
+            this.server = server;
+            this.projection = projection;
+        }
+    }
+
+    @Inject
+    private ComponentManager componentManager;
+
+    @Inject
+    private BeanManager beanManager;
+
+    @Inject
+    private YouTrackServerResolver youTrackServerResolver;
+
+    @Inject
+    private YouTrackPrefetchedIssues prefetchedIssues;
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public int getPriority()
+    {
+        return PRIORITY;
+    }
+
+    @Override
+    public void transform(Block block, TransformationContext context)
+    {
+        if (!this.prefetchedIssues.isAvailable()) {
+            return;
+        }
+
+        ListYouTrackDataSource listSource = getListSource();
+        if (listSource == null) {
+            return;
+        }
+
+        Map<Triple<String, String, String>, PrefetchRequest> requests = new LinkedHashMap<>();
+        List<MacroBlock> macroBlocks = block.getBlocks(new ClassBlockMatcher(MacroBlock.class), Block.Axes.DESCENDANT);
+        for (MacroBlock macroBlock : macroBlocks) {
+            if (MACRO_ID.equalsIgnoreCase(macroBlock.getId())) {
+                try {
+                    collect(macroBlock, listSource, requests);
+                } catch (Exception e) {
+                    // The macro will report the error when executed.
+                    this.logger.debug("Skipping prefetch of YouTrack macro with parameters [{}]: [{}]",
+                        macroBlock.getParameters(), e.getMessage());
+                }
+            }
+        }
+
+        for (PrefetchRequest request : requests.values()) {
+            try {
+                this.prefetchedIssues.put(request.server,
+                    listSource.getIssues(request.issueIds, request.server, request.projection), request.projection);
+            } catch (Exception e) {
+                // The macros will fetch their issues themselves.
+                this.logger.warn("Failed to prefetch YouTrack issues from [{}]. Root cause: [{}]",
+                    request.server.getURL(), e.getMessage());
+            }
+        }
+    }
+
+    private void collect(MacroBlock macroBlock, ListYouTrackDataSource listSource,
+        Map<Triple<String, String, String>, PrefetchRequest> requests) throws Exception
+    {
+        YouTrackMacroParameters parameters = new YouTrackMacroParameters();
+        this.beanManager.populate(parameters, macroBlock.getParameters());
+        if (!LIST_SOURCE.equals(parameters.getSource()) || !listSource.isBatchEnabled(parameters)) {
+            return;
+        }
+
+        // Compute the projection the same way the macro does, so that it finds the prefetched issues.
+        YouTrackDisplayer displayer = this.componentManager.getInstance(YouTrackDisplayer.class, parameters.getStyle());
+        YouTrackFieldProjection projection = YouTrackFieldProjection.of(displayer.getFields(parameters));
+        YouTrackServer server = this.youTrackServerResolver.resolve(parameters);
+
+        PrefetchRequest request = requests.computeIfAbsent(
+            new ImmutableTriple<>(server.getURL(), server.getUsername(), projection.getQueryString()),
+            key -> new PrefetchRequest(server, projection));
+        for (Pair<String, String> id : listSource.parseIds(macroBlock.getContent())) {
+            request.issueIds.add(id.getLeft());
+        }
+    }
+
+    private ListYouTrackDataSource getListSource()
+    {
+        try {
+            YouTrackDataSource source = this.componentManager.getInstance(YouTrackDataSource.class, LIST_SOURCE);
+            // The list source may have been overridden by something we don't know how to prefetch for.
+            return source instanceof ListYouTrackDataSource ? (ListYouTrackDataSource) source : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
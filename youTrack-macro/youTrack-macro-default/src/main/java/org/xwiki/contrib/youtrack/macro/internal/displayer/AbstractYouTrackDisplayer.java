@@ -20,8 +20,6 @@
 package org.xwiki.contrib.youtrack.macro.internal.displayer;
 
 import org.apache.commons.lang3.StringUtils;
-import org.xwiki.component.manager.ComponentLookupException;
-import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.contrib.youtrack.macro.YouTrackDisplayer;
 import org.xwiki.contrib.youtrack.macro.YouTrackField;
 import org.xwiki.contrib.youtrack.macro.YouTrackFieldDisplayer;
@@ -29,6 +27,7 @@ import org.xwiki.contrib.youtrack.macro.YouTrackFields;
 import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -43,13 +42,7 @@ public abstract class AbstractYouTrackDisplayer implements YouTrackDisplayer
      * Used to find specific Field displayers.
      */
     @Inject
-    protected ComponentManager componentManager;
-
-    /**
-     * Default field displayer to use when there's no specific field displayer for a field.
-     */
-    @Inject
-    protected YouTrackFieldDisplayer defaultDisplayer;
+    protected YouTrackFieldDisplayerResolver fieldDisplayerResolver;
 
     /**
      * @param field the field to display
@@ -57,21 +50,27 @@ public abstract class AbstractYouTrackDisplayer implements YouTrackDisplayer
      */
     protected YouTrackFieldDisplayer getFieldDisplayer(YouTrackField field)
     {
-        YouTrackFieldDisplayer displayer;
-        try {
-            // Look for a field displayer for the field id
-            displayer = this.componentManager.getInstance(YouTrackFieldDisplayer.class, field.getId());
-        } catch (ComponentLookupException e) {
-            // Look for a field displayer for the field type
-            try {
-                displayer = this.componentManager.getInstance(YouTrackFieldDisplayer.class,
-                    String.format("type/%s", field.getType()));
-            } catch (ComponentLookupException ee) {
-                // Use the default displayer
-                displayer = this.defaultDisplayer;
-            }
+        return this.fieldDisplayerResolver.resolve(field);
+    }
+
+    /**
+     * @param fields the fields to display
+     * @return the field displayers to use for each of the passed fields, in the same order, so that they are resolved
+     *         once per column and not for each displayed issue
+     */
+    protected List<YouTrackFieldDisplayer> getFieldDisplayers(YouTrackFields fields)
+    {
+        List<YouTrackFieldDisplayer> displayers = new ArrayList<>(fields.size());
+        for (YouTrackField field : fields) {
+            displayers.add(getFieldDisplayer(field));
         }
-        return displayer;
+        return displayers;
+    }
+
+    @Override
+    public YouTrackFields getFields(YouTrackMacroParameters parameters)
+    {
+        return normalizeFields(parameters);
     }
 
     /**
@@ -21,6 +21,7 @@ package org.xwiki.contrib.youtrack.macro.internal.displayer;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.contrib.youtrack.macro.YouTrackField;
+import org.xwiki.contrib.youtrack.macro.YouTrackFieldDisplayer;
 import org.xwiki.contrib.youtrack.macro.YouTrackFields;
 import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
 import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
@@ -62,16 +63,16 @@ public class EnumYouTrackDisplayer extends AbstractYouTrackDisplayer
         List<Block> enumItemBlocks = new ArrayList<>();
 
         YouTrackFields fields = normalizeFields(parameters);
+        List<YouTrackFieldDisplayer> displayers = getFieldDisplayers(fields);
         Iterator<ItemObject> issueIt = issues.iterator();
         while (issueIt.hasNext()) {
             ItemObject issue = issueIt.next();
-            Iterator<YouTrackField> it = fields.iterator();
-            while (it.hasNext()) {
-                YouTrackField field = it.next();
+            for (int i = 0; i < fields.size(); i++) {
+                YouTrackField field = fields.get(i);
                 // Use the displayer for the field
-                enumItemBlocks.addAll(getFieldDisplayer(field).displayField(field, issue, parameters));
+                enumItemBlocks.addAll(displayers.get(i).displayField(field, issue, parameters));
                 // Add space to separate fields, unless we're on the last field
-                if (it.hasNext()) {
+                if (i < fields.size() - 1) {
                     enumItemBlocks.add(new SpaceBlock());
                 }
             }
@@ -21,6 +21,7 @@ package org.xwiki.contrib.youtrack.macro.internal.displayer;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.contrib.youtrack.macro.YouTrackField;
+import org.xwiki.contrib.youtrack.macro.YouTrackFieldDisplayer;
 import org.xwiki.contrib.youtrack.macro.YouTrackFields;
 import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
 import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
@@ -35,7 +36,6 @@ import javax.inject.Singleton;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -61,15 +61,15 @@ public class ListYouTrackDisplayer extends AbstractYouTrackDisplayer
         List<Block> listItemBlocks = new ArrayList<>();
 
         YouTrackFields fields = normalizeFields(parameters);
+        List<YouTrackFieldDisplayer> displayers = getFieldDisplayers(fields);
         for (ItemObject issue : issues) {
             List<Block> itemBlocks = new ArrayList<>();
-            Iterator<YouTrackField> it = fields.iterator();
-            while (it.hasNext()) {
-                YouTrackField field = it.next();
+            for (int i = 0; i < fields.size(); i++) {
+                YouTrackField field = fields.get(i);
                 // Use the displayer for the field
-                itemBlocks.addAll(getFieldDisplayer(field).displayField(field, issue, parameters));
+                itemBlocks.addAll(displayers.get(i).displayField(field, issue, parameters));
                 // Add space to separate fields, unless we're on the last field
-                if (it.hasNext()) {
+                if (i < fields.size() - 1) {
                     itemBlocks.add(new SpaceBlock());
                 }
             }
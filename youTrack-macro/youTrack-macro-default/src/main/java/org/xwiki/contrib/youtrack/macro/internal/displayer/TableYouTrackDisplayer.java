@@ -22,6 +22,7 @@ package org.xwiki.contrib.youtrack.macro.internal.displayer;
 import org.apache.commons.lang3.StringUtils;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.contrib.youtrack.macro.YouTrackField;
+import org.xwiki.contrib.youtrack.macro.YouTrackFieldDisplayer;
 import org.xwiki.contrib.youtrack.macro.YouTrackFields;
 import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
 import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
@@ -74,17 +75,18 @@ public class TableYouTrackDisplayer extends AbstractYouTrackDisplayer
         rowBlocks.add(new TableRowBlock(headerCellBlocks));
 
         // Construct the data rows, one row per issue
+        List<YouTrackFieldDisplayer> displayers = getFieldDisplayers(fields);
         for (ItemObject issue : issues) {
             List<Block> dataCellBlocks = new ArrayList<>();
-            for (YouTrackField field : fields) {
+            for (int i = 0; i < fields.size(); i++) {
+                YouTrackField field = fields.get(i);
                 // Use the displayer for the field
                 try {
-                    dataCellBlocks.add(new TableCellBlock(getFieldDisplayer(field).displayField(field,
+                    dataCellBlocks.add(new TableCellBlock(displayers.get(i).displayField(field,
                             issue, parameters)));
                 } catch (NullPointerException ex) {
-                    throw new MacroExecutionException(String.format("Field not supported %s  for issue %s\n%s",
-                            field.getId(), issue.getCustomField(field.getId()).getName(),
-                            Arrays.toString(ex.getStackTrace())));
+                    throw new MacroExecutionException(String.format("Failed to display field [%s] for issue [%s]",
+                            field.getId(), issue.getId()), ex);
                 }
 
             }
@@ -0,0 +1,68 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.displayer;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.event.ComponentDescriptorAddedEvent;
+import org.xwiki.component.event.ComponentDescriptorRemovedEvent;
+import org.xwiki.contrib.youtrack.macro.YouTrackFieldDisplayer;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+/**
+ * Flushes the resolved field displayers when a {@link YouTrackFieldDisplayer} is registered or unregistered, so that
+ * extensions providing field displayers are taken into account without restart.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component
+@Named(YouTrackFieldDisplayerListener.NAME)
+@Singleton
+public class YouTrackFieldDisplayerListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "YouTrackFieldDisplayerListener";
+
+    @Inject
+    private Provider<YouTrackFieldDisplayerResolver> resolverProvider;
+
+    /**
+     * Default constructor.
+     */
+    public YouTrackFieldDisplayerListener()
+    {
+        super(NAME, new ComponentDescriptorAddedEvent(YouTrackFieldDisplayer.class),
+            new ComponentDescriptorRemovedEvent(YouTrackFieldDisplayer.class));
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        this.resolverProvider.get().flush();
+    }
+}
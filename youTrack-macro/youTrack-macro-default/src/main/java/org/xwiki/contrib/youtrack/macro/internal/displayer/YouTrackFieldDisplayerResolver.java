@@ -0,0 +1,105 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.displayer;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.contrib.youtrack.macro.YouTrackField;
+import org.xwiki.contrib.youtrack.macro.YouTrackFieldDisplayer;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the {@link YouTrackFieldDisplayer} to use for a given field: the displayer registered for the field id if any,
+ * otherwise the displayer registered for the field type ({@code type/<type>}), otherwise the default displayer.
+ * <p>
+ * Resolved displayers are kept per field id and type, and forgotten as soon as a field displayer is registered or
+ * unregistered (see {@link YouTrackFieldDisplayerListener}).
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component(roles = {YouTrackFieldDisplayerResolver.class})
+@Singleton
+public class YouTrackFieldDisplayerResolver
+{
+    @Inject
+    private ComponentManager componentManager;
+
+    /**
+     * Default field displayer to use when there's no specific field displayer for a field.
+     */
+    @Inject
+    private YouTrackFieldDisplayer defaultDisplayer;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<Pair<String, String>, YouTrackFieldDisplayer> displayers = new ConcurrentHashMap<>();
+
+    /**
+     * @param field the field to display
+     * @return the field displayer to use to display the passed field
+     */
+    public YouTrackFieldDisplayer resolve(YouTrackField field)
+    {
+        return this.displayers.computeIfAbsent(new ImmutablePair<>(field.getId(), field.getType()),
+            key -> lookup(key.getLeft(), key.getRight()));
+    }
+
+    /**
+     * Forget all the resolved displayers.
+     */
+    public void flush()
+    {
+        this.displayers.clear();
+    }
+
+    private YouTrackFieldDisplayer lookup(String fieldId, String fieldType)
+    {
+        // Look for a field displayer for the field id, then for the field type
+        YouTrackFieldDisplayer displayer = lookup(fieldId);
+        if (displayer == null && fieldType != null) {
+            displayer = lookup(String.format("type/%s", fieldType));
+        }
+        // Use the default displayer
+        return displayer != null ? displayer : this.defaultDisplayer;
+    }
+
+    private YouTrackFieldDisplayer lookup(String hint)
+    {
+        if (hint != null && this.componentManager.hasComponent(YouTrackFieldDisplayer.class, hint)) {
+            try {
+                return this.componentManager.getInstance(YouTrackFieldDisplayer.class, hint);
+            } catch (ComponentLookupException e) {
+                this.logger.warn("Failed to lookup YouTrack field displayer [{}]. Root cause: [{}]", hint,
+                    e.getMessage());
+            }
+        }
+        return null;
+    }
+}
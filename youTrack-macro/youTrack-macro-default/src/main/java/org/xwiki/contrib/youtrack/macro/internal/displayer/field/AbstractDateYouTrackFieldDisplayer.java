@@ -19,54 +19,118 @@
  */
 package org.xwiki.contrib.youtrack.macro.internal.displayer.field;
 
+import org.apache.commons.lang3.LocaleUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.xwiki.contrib.youtrack.macro.YouTrackField;
 import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
 import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
 import org.xwiki.rendering.block.Block;
-import org.xwiki.rendering.block.VerbatimBlock;
+import org.xwiki.rendering.block.WordBlock;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Common Field Displayer for Dates. Parses field in the YouTrack date format and generates date the format
- * {@code dd-MMM-yyyy}.
+ * Common Field Displayer for Dates. Displays dates (received from YouTrack as milliseconds since the epoch) using the
+ * {@code yyyy-MM-dd} format by default.
+ * <p>
+ * The format can be changed with the {@code field.date.format} extra macro parameter (see {@link DateTimeFormatter}
+ * for the syntax), and the locale and time zone used with the {@code field.date.locale} (e.g. {@code fr_FR}) and
+ * {@code field.date.timezone} (e.g. {@code Europe/Paris}) extra parameters. Formatters are immutable and shared
+ * between all the displayed dates.
  *
  * @version $Id$
  * @since 4.2M1
  */
 public abstract class AbstractDateYouTrackFieldDisplayer extends AbstractYouTrackFieldDisplayer
 {
+    private static final String FORMAT_PARAMETER = "field.date.format";
+
+    private static final String LOCALE_PARAMETER = "field.date.locale";
+
+    private static final String TIMEZONE_PARAMETER = "field.date.timezone";
+
     /**
-     * YouTrack Date format.
+     * Date format for displaying.
      */
-    private DateFormat youtrackDateFormat = new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss Z");
+    private static final String DEFAULT_FORMAT = "yyyy-MM-dd";
 
     /**
-     * Date format for displaying.
+     * Maximum number of cached formatters. Formats are user-defined so we make sure the cache cannot grow forever.
      */
-    private DateFormat displayDateFormat = new SimpleDateFormat("dd-MMM-yyyy");
+    private static final int MAX_CACHED_FORMATTERS = 100;
+
+    private static final Map<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
 
     @Override
     public List<Block> displayField(YouTrackField field, ItemObject issue, YouTrackMacroParameters parameters)
     {
         List<Block> result;
-        String date = getValue(field, issue);
-        if (date != null) {
-            try {
-                Date parsedDate = this.youtrackDateFormat.parse(date);
-                result = Arrays.<Block>asList(new VerbatimBlock(this.displayDateFormat.format(parsedDate), true));
-            } catch (ParseException e) {
-                result = Arrays.<Block>asList(new VerbatimBlock(date, true));
-            }
+        long time = getTime(field, issue);
+        if (time != ItemObject.NO_DATE) {
+            result = Arrays.<Block>asList(new WordBlock(formatTime(time, parameters)));
         } else {
             result = Collections.emptyList();
         }
         return result;
     }
+
+    /**
+     * @param field the field to display
+     * @param issue the issue for which to display the field
+     * @return the date to display, in milliseconds since the epoch, or {@link ItemObject#NO_DATE} if there's no date
+     */
+    protected long getTime(YouTrackField field, ItemObject issue)
+    {
+        return ItemObject.parseTime(getValue(field, issue));
+    }
+
+    /**
+     * @param time the date to format, in milliseconds since the epoch
+     * @param parameters the macro parameters, holding the optional date format, locale and time zone to use
+     * @return the formatted date
+     */
+    protected String formatTime(long time, YouTrackMacroParameters parameters)
+    {
+        return getFormatter(parameters).format(Instant.ofEpochMilli(time));
+    }
+
+    private DateTimeFormatter getFormatter(YouTrackMacroParameters parameters)
+    {
+        Properties properties = parameters.getParameters();
+        String pattern = StringUtils.defaultIfBlank(properties.getProperty(FORMAT_PARAMETER), DEFAULT_FORMAT);
+        String locale = StringUtils.defaultString(properties.getProperty(LOCALE_PARAMETER));
+        String timezone = StringUtils.defaultString(properties.getProperty(TIMEZONE_PARAMETER));
+
+        String key = pattern + '\n' + locale + '\n' + timezone;
+        DateTimeFormatter formatter = FORMATTERS.get(key);
+        if (formatter == null) {
+            if (FORMATTERS.size() >= MAX_CACHED_FORMATTERS) {
+                FORMATTERS.clear();
+            }
+            formatter = FORMATTERS.computeIfAbsent(key, k -> createFormatter(pattern, locale, timezone));
+        }
+        return formatter;
+    }
+
+    private static DateTimeFormatter createFormatter(String pattern, String locale, String timezone)
+    {
+        try {
+            return DateTimeFormatter.ofPattern(pattern,
+                locale.isEmpty() ? Locale.getDefault() : LocaleUtils.toLocale(locale))
+                .withZone(timezone.isEmpty() ? ZoneId.systemDefault() : ZoneId.of(timezone));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            // Invalid format, locale or time zone: fall back on the default format.
+            return DateTimeFormatter.ofPattern(DEFAULT_FORMAT).withZone(ZoneId.systemDefault());
+        }
+    }
 }
@@ -49,11 +49,14 @@ public abstract class AbstractYouTrackFieldDisplayer implements YouTrackFieldDis
         if(field.equals(YouTrackField.SUMMARY) || field.getId().equalsIgnoreCase(YouTrackField.SUMMARY.getId())) {
             return issue.getSummary();
         }
+        if (YouTrackField.NOTE.equalsIgnoreCase(field.getId())) {
+            return issue.getNote();
+        }
 
         CustomFields customField = issue.getCustomField(field.getId());
         if(customField.getValues() != null) {
             return customField.getValues().stream().map(ValueObject::getName).collect(Collectors.joining(", "));
         }
-        return customField.getValue().getName();
+        return customField.getValue() != null ? customField.getValue().getName() : null;
     }
 }
@@ -33,7 +33,6 @@ import org.xwiki.rendering.listener.reference.ResourceType;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
-import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -56,8 +55,13 @@ public class DateYouTrackFieldDisplayer extends AbstractDateYouTrackFieldDisplay
 
         String value = getValue(field, issue);
         if (value != null) {
-            result = Arrays.<Block>asList(new WordBlock(new SimpleDateFormat("yyyy-MM-dd")
-                    .format(Long.valueOf(value))));
+            long time = ItemObject.parseTime(value);
+            if (time != ItemObject.NO_DATE) {
+                result = Arrays.<Block>asList(new WordBlock(formatTime(time, parameters)));
+            } else {
+                // Not a date sent as a timestamp, display it as is.
+                result = Arrays.<Block>asList(new VerbatimBlock(value, true));
+            }
         }
         return result;
     }
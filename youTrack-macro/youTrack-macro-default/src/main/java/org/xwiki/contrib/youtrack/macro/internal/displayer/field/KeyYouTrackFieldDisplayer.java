@@ -29,6 +29,7 @@ import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
 import org.xwiki.contrib.youtrack.macro.internal.source.DefaultYouTrackServerResolver;
 import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackServerResolver;
 import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ValueObject;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.FormatBlock;
 import org.xwiki.rendering.block.ImageBlock;
@@ -79,8 +80,9 @@ public class KeyYouTrackFieldDisplayer implements YouTrackFieldDisplayer {
             ImageBlock imageBlock = null;
             Map<String, String> resourceParameters = new HashMap<String, String>();
             String status = "No State";
-            if(issue.getCustomField(YouTrackField.STATE.getId()).getValue() != null) {
-                status = issue.getCustomField(YouTrackField.STATE.getId()).getValue().getName();
+            ValueObject state = issue.getCustomField(YouTrackField.STATE.getId()).getValue();
+            if(state != null) {
+                status = state.getName();
                 resourceParameters.put("alt", status);
                 resourceParameters.put("title", status);
                 if ("Done".equals(status)) {
@@ -25,6 +25,7 @@ import org.xwiki.contrib.youtrack.macro.YouTrackFieldDisplayer;
 import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
 import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.CustomFields;
 import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ValueObject;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.WordBlock;
 
@@ -55,8 +56,9 @@ public class StateYouTrackFieldDisplayer implements YouTrackFieldDisplayer {
         List<Block>  blockList = new ArrayList<>();
         Map<String, String> resourceParameters = new HashMap<String, String>();
         String status = "No State";
-        if(issue.getCustomField(YouTrackField.STATE.getId()).getValue() != null) {
-            status = issue.getCustomField(YouTrackField.STATE.getId()).getValue().getName();
+        ValueObject state = issue.getCustomField(YouTrackField.STATE.getId()).getValue();
+        if(state != null) {
+            status = state.getName();
         }
         blockList.add(new WordBlock(status));
         return blockList;
@@ -27,6 +27,7 @@ import org.xwiki.contrib.youtrack.macro.YouTrackFieldDisplayer;
 import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
 import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.CustomFields;
 import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ValueObject;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.FormatBlock;
 import org.xwiki.rendering.block.ImageBlock;
@@ -60,7 +61,11 @@ public class TypeYouTrackFieldDisplayer implements YouTrackFieldDisplayer {
     public List<Block> displayField(YouTrackField field, ItemObject issue, YouTrackMacroParameters parameters)
     {
         List<Block> result;
-        String type = issue.getCustomField(YouTrackField.TYPE.getId()).getValue().getName();
+        ValueObject value = issue.getCustomField(YouTrackField.TYPE.getId()).getValue();
+        if (value == null || value.getName() == null) {
+            return Collections.emptyList();
+        }
+        String type = value.getName();
         VerbatimBlock verbatimBlock = new VerbatimBlock(type, true);
 
         Map<String, String> resourceParameters = new HashMap<>();
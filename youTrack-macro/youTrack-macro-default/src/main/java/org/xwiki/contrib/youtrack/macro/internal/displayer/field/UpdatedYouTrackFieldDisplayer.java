@@ -21,17 +21,10 @@ package org.xwiki.contrib.youtrack.macro.internal.displayer.field;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.contrib.youtrack.macro.YouTrackField;
-import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
 import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
-import org.xwiki.rendering.block.Block;
-import org.xwiki.rendering.block.WordBlock;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
-import java.text.SimpleDateFormat;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
 
 /**
  * Field Displayer for the issue last update date.
@@ -45,15 +38,8 @@ import java.util.List;
 public class UpdatedYouTrackFieldDisplayer extends AbstractDateYouTrackFieldDisplayer
 {
     @Override
-    public List<Block> displayField(YouTrackField field, ItemObject issue, YouTrackMacroParameters parameters)
+    protected long getTime(YouTrackField field, ItemObject issue)
     {
-        List<Block> result = Collections.emptyList();
-
-        String value = issue.getUpdated();
-        if (value != null) {
-            result = Arrays.<Block>asList(new WordBlock(new SimpleDateFormat("yyyy-MM-dd")
-                    .format(Long.valueOf(value))));
-        }
-        return result;
+        return issue.getUpdatedTime();
     }
 }
@@ -19,28 +19,19 @@
  */
 package org.xwiki.contrib.youtrack.macro.internal.source;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonSyntaxException;
 import org.slf4j.Logger;
 import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
 import org.xwiki.contrib.youtrack.config.YouTrackServer;
 import org.xwiki.contrib.youtrack.macro.YouTrackDataSource;
+import org.xwiki.contrib.youtrack.macro.YouTrackFields;
 import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
-import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.CustomFields;
 import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
-import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ReporterObject;
-import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ValueObject;
 import org.xwiki.rendering.macro.MacroExecutionException;
 
 import javax.inject.Inject;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -53,17 +44,11 @@ import java.util.List;
  */
 public abstract class AbstractYouTrackDataSource implements YouTrackDataSource
 {
-    /**
-     * URL Prefix to use to build the full JQL URL (doesn't contain the JQL query itself which needs to be appended).
-     */
-    private static final String JQL_URL_PREFIX =
-        "/api/issues";
-
     @Inject
     private YouTrackConfiguration configuration;
 
     @Inject
-    private Logger logger;
+    protected Logger logger;
 
     @Inject
     private HTTPYouTrackFetcher youtrackFetcher;
@@ -71,163 +56,176 @@ public abstract class AbstractYouTrackDataSource implements YouTrackDataSource
     @Inject
     private YouTrackServerResolver youtrackServerResolver;
 
-    /**
-     * @param jsonObject the XML document from which to extract YouTrack issues
-     * @param youTrackServer
-     * @return the list of XML Elements for each YouTrack issue, indexed in a Map with the issue id as the key
-     */
-    protected ItemObject buildIssues(JsonObject jsonObject, YouTrackServer youTrackServer) throws MacroExecutionException {
-
-        GsonBuilder gsonBuilder = new GsonBuilder();
-
-        JsonDeserializer<ItemObject> deserializer = (json, typeOfT, context) -> {
-            JsonObject jsonObject1 = json.getAsJsonObject();
-            List<CustomFields> customFieldsList = new ArrayList<>();
-
-            for (JsonElement jsonElement : jsonObject1.get("customFields").getAsJsonArray()) {
-                JsonObject item = jsonElement.getAsJsonObject();
-                List<ValueObject> valueObjectList = null;
-                ValueObject valueObject = null;
-                if (item.get("value").isJsonArray()) {
-                    valueObjectList = new ArrayList<>();
-                    for (JsonElement element : item.get("value").getAsJsonArray()) {
-                        JsonObject value = element.getAsJsonObject();
-                        valueObjectList.add(new ValueObject(
-                                        value.get("name").isJsonNull() ? null : value.get("name").getAsString(),
-                                        value.get("fullName") == null || value.get("fullName").isJsonNull() ? null : value.get("fullName").getAsString(),
-                                        value.get("avatarUrl") == null || value.get("avatarUrl").isJsonNull()
-                                                ? null
-                                                :  youTrackServer.getURL() + value.get("avatarUrl").getAsString()
-                                )
-                        );
-                    }
-                } else if(!item.get("value").isJsonNull()){
-                    JsonObject value = item.get("value").getAsJsonObject();
-                    valueObject = new ValueObject(
-                            value.get("name").isJsonNull() ? null : value.get("name").getAsString(),
-                            value.get("fullName") == null || value.get("fullName").isJsonNull() ? null : value.get("fullName").getAsString(),
-                            value.get("avatarUrl") == null || value.get("avatarUrl").isJsonNull()
-                                    ? null
-                                    :  youTrackServer.getURL() + value.get("avatarUrl").getAsString()
-                    );
-                }
-                customFieldsList.add(new CustomFields(item.get("name").getAsString(), valueObject, valueObjectList));
-            }
+    @Inject
+    private YouTrackIssueCache issueCache;
 
-            ReporterObject reporterObject = null;
-            if(jsonObject1.get("reporter") != null && !jsonObject1.get("reporter").isJsonNull()) {
-                JsonObject reporter = jsonObject1.get("reporter").getAsJsonObject();
-                reporterObject = new ReporterObject(reporter.get("fullName").getAsString(),
-                        youTrackServer.getURL() + reporter.get("avatarUrl").getAsString());
-            }
+    @Inject
+    private YouTrackPrefetchedIssues prefetchedIssues;
 
-            return new ItemObject(
-                    jsonObject1.get("summary").isJsonNull() ? null : jsonObject1.get("summary").getAsString(),
-                    jsonObject1.get("idReadable").isJsonNull() ? null : jsonObject1.get("idReadable").getAsString(),
-                    jsonObject1.get("updated").isJsonNull() ? null : jsonObject1.get("updated").getAsString(),
-                    jsonObject1.get("resolved").isJsonNull() ? null : jsonObject1.get("resolved").getAsString(),
-                    jsonObject1.get("created").isJsonNull() ? null : jsonObject1.get("created").getAsString(),
-                    customFieldsList, reporterObject,
-                    null
-            );
-        };
-        gsonBuilder.registerTypeAdapter(ItemObject.class, deserializer);
-        Gson customGson = gsonBuilder.create();
-        try {
-            ItemObject itemObject = customGson.fromJson(jsonObject, ItemObject.class);
-            itemObject.setLink(youTrackServer.getURL() + "/issue/" + itemObject.getId());
-            return itemObject;
-        } catch (JsonSyntaxException exception) {
-            throw new MacroExecutionException("Error when parsing JSON: " + jsonObject + "\n"
-                    + Arrays.toString(exception.getStackTrace()));
-        }
+    @Override
+    public List<ItemObject> getData(String macroContent, YouTrackMacroParameters parameters)
+        throws MacroExecutionException
+    {
+        return getData(macroContent, parameters, parameters.getFields());
     }
 
+    @Override
+    public abstract List<ItemObject> getData(String macroContent, YouTrackMacroParameters parameters,
+        YouTrackFields fields) throws MacroExecutionException;
+
     /**
      * @param youTrackServer the YouTrack Server definition to use
-     * @param jqlQuery the JQL query to execute
-     * @param maxCount the max number of issues to get
-     * @return the XML document containing the matching YouTrack issues
-     * @throws MacroExecutionException if the YouTrack issues cannot be retrieved
+     * @param issueId the id of the issue to get
+     * @param projection the issue data to get
+     * @return the matching YouTrack issue, taken from the issue cache or decoded directly from the HTTP response
+     * @throws MacroExecutionException if the YouTrack issue cannot be retrieved
      */
-    public JsonObject getJsonDocument(YouTrackServer youTrackServer, String jqlQuery, int maxCount)
+    public ItemObject getIssue(YouTrackServer youTrackServer, String issueId, YouTrackFieldProjection projection)
         throws MacroExecutionException
     {
-        JsonObject document = null;
-        String urlString = computeFullURL(youTrackServer, jqlQuery, maxCount);
+        ItemObject issue = getCachedIssue(youTrackServer, issueId, projection);
+        if (issue != null) {
+            return issue;
+        }
+
+        String urlString = computeFullURL(youTrackServer, issueId, -1, projection);
         try {
-            document = this.youtrackFetcher.fetch(urlString, youTrackServer);
+            issue = this.youtrackFetcher.fetchIssue(urlString, youTrackServer);
+            this.issueCache.set(youTrackServer, issue, projection);
+            return issue;
         } catch (Exception e) {
             throw new MacroExecutionException(String.format("Failed to retrieve YouTrack data from [%s] for JQL [%s] "
-                            + "url [%s]", youTrackServer.getURL(), jqlQuery, urlString), e);
+                + "url [%s]", youTrackServer.getURL(), issueId, urlString), e);
         }
-        return document;
     }
 
     /**
      * @param youTrackServer the YouTrack Server definition to use
      * @param jqlQuery the JQL query to execute
      * @param maxCount the max number of issues to get
-     * @return the XML document containing the matching YouTrack issues
+     * @param projection the issue data to get
+     * @return the matching YouTrack issues, decoded directly from the HTTP response
      * @throws MacroExecutionException if the YouTrack issues cannot be retrieved
      */
-    public List<JsonObject> getJsonDocumentByJQL(YouTrackServer youTrackServer, String jqlQuery, int maxCount)
-            throws MacroExecutionException
+    public List<ItemObject> getIssuesByJQL(YouTrackServer youTrackServer, String jqlQuery, int maxCount,
+        YouTrackFieldProjection projection) throws MacroExecutionException
     {
-        List<JsonObject> documentsList = null;
-        String urlString = computeFullURLWithJQL(youTrackServer, jqlQuery, maxCount);
+        String urlString = computeFullURLWithJQL(youTrackServer, jqlQuery, maxCount, 0, projection);
         try {
-            documentsList = this.youtrackFetcher.fetchList(urlString, youTrackServer);
+            return cacheIssues(youTrackServer, this.youtrackFetcher.fetchIssues(urlString, youTrackServer),
+                projection);
         } catch (Exception e) {
             throw new MacroExecutionException(String.format("Failed to retrieve YouTrack data from [%s] for JQL [%s] "
-                    + "url [%s]", youTrackServer.getURL(), jqlQuery, urlString), e);
+                + "url [%s]", youTrackServer.getURL(), jqlQuery, urlString), e);
         }
-        return documentsList;
     }
 
-    protected String computeFullURL(YouTrackServer youTrackServer, String jqlQuery, int maxCount)
+    /**
+     * @param youTrackServer the YouTrack Server definition to use
+     * @param issueId the id of the issue to get
+     * @param projection the issue data to get
+     * @return the issue fetched in advance for the current request or found in the issue cache, or {@code null} if
+     *         it's in neither of them
+     */
+    protected ItemObject getCachedIssue(YouTrackServer youTrackServer, String issueId,
+        YouTrackFieldProjection projection)
     {
-        StringBuilder additionalQueryString = new StringBuilder();
+        ItemObject issue = this.prefetchedIssues.get(youTrackServer, issueId, projection);
+        if (issue == null) {
+            issue = this.issueCache.get(youTrackServer, issueId, projection);
+        }
+        return issue;
+    }
 
-        // Restrict number of issues returned if need be
-//        if (maxCount > -1) {
-//            additionalQueryString.append("&tempMax=").append(maxCount);
-//        }
+    private List<ItemObject> cacheIssues(YouTrackServer youTrackServer, List<ItemObject> issues,
+        YouTrackFieldProjection projection)
+    {
+        for (ItemObject issue : issues) {
+            this.issueCache.set(youTrackServer, issue, projection);
+        }
+        return issues;
+    }
+
+    protected String computeFullURL(YouTrackServer youTrackServer, String jqlQuery, int maxCount,
+        YouTrackFieldProjection projection)
+    {
+        StringBuilder additionalQueryString = new StringBuilder();
 
-        additionalQueryString.append("?fields=idReadable,summary,reporter(fullName,avatarUrl)"
-                + ",created,updated,resolved,"
-                + "customFields(name,value(name,fullName,avatarUrl))"
-                + "&customFields=type&customFields=assignee&customFields=priority&customFields=state"
-                + "&customFields=reviewer&customFields=fix+versions&customFields=sprints");
+        additionalQueryString.append('?').append(projection.getQueryString());
 
         // Note: we encode using UTF8 since it's the W3C recommendation.
         // See http://www.w3.org/TR/html40/appendix/notes.html#non-ascii-chars
-        String fullURL = String.format("%s%s%s%s", youTrackServer.getURL(), JQL_URL_PREFIX + "/", encode(jqlQuery),
-            additionalQueryString);
+        String fullURL = String.format("%s/%s%s", this.youtrackFetcher.getEndpoint(youTrackServer).getIssuesURL(),
+            encode(jqlQuery), additionalQueryString);
         this.logger.debug("Computed YouTrack URL [{}]", fullURL);
 
         return fullURL;
     }
 
-    protected String computeFullURLWithJQL(YouTrackServer youTrackServer, String jqlQuery, int maxCount)
+    /**
+     * Execute the passed query page by page, stopping as soon as {@code maxCount} issues have been retrieved.
+     *
+     * @param youTrackServer the YouTrack Server definition to use
+     * @param jqlQuery the JQL query to execute
+     * @param maxCount the max number of issues to get, {@code -1} to get all matching issues
+     * @param pageSize the max number of issues to get with each request
+     * @param projection the issue data to get
+     * @return the matching YouTrack issues, in the order returned by YouTrack
+     * @throws MacroExecutionException if the YouTrack issues cannot be retrieved
+     */
+    public List<ItemObject> getIssuesByJQL(YouTrackServer youTrackServer, String jqlQuery, int maxCount, int pageSize,
+        YouTrackFieldProjection projection) throws MacroExecutionException
+    {
+        List<ItemObject> issues = new ArrayList<>();
+        int top;
+        int pageCount;
+        do {
+            top = maxCount > -1 ? Math.min(pageSize, maxCount - issues.size()) : pageSize;
+            String urlString = computeFullURLWithJQL(youTrackServer, jqlQuery, top, issues.size(), projection);
+            List<ItemObject> page;
+            try {
+                page = this.youtrackFetcher.fetchIssues(urlString, youTrackServer);
+            } catch (Exception e) {
+                throw new MacroExecutionException(String.format("Failed to retrieve YouTrack data from [%s] for "
+                    + "JQL [%s] url [%s]", youTrackServer.getURL(), jqlQuery, urlString), e);
+            }
+            pageCount = page.size();
+            issues.addAll(cacheIssues(youTrackServer, page, projection));
+            // A page shorter than requested means there are no more matching issues.
+        } while (pageCount > 0 && pageCount == top && (maxCount < 0 || issues.size() < maxCount));
+
+        return issues;
+    }
+
+    /**
+     * @param youTrackServer the YouTrack Server definition to use
+     * @param jqlQuery the JQL query to execute
+     * @param maxCount the max number of issues to get ({@code $top}), {@code -1} to let YouTrack decide
+     * @param skip the number of matching issues to skip ({@code $skip}), used for paging
+     * @param projection the issue data to get
+     * @return the full URL to call
+     */
+    protected String computeFullURLWithJQL(YouTrackServer youTrackServer, String jqlQuery, int maxCount, int skip,
+        YouTrackFieldProjection projection)
     {
         StringBuilder additionalQueryString = new StringBuilder();
 
+        additionalQueryString.append('?').append(projection.getQueryString());
+
         // Restrict number of issues returned if need be
-//        if (maxCount > -1) {
-//            additionalQueryString.append("&tempMax=").append(maxCount);
-//        }
+        if (maxCount > -1) {
+            additionalQueryString.append("&$top=").append(maxCount);
+        }
+        if (skip > 0) {
+            additionalQueryString.append("&$skip=").append(skip);
+        }
 
-        additionalQueryString.append("?fields=idReadable,summary,reporter(fullName,avatarUrl)"
-                + ",created,updated,resolved,"
-                + "customFields(name,value(name,fullName,avatarUrl))"
-                + "&customFields=type&customFields=assignee&customFields=priority&customFields=state"
-                + "&customFields=reviewer&customFields=fix+versions&customFields=sprints&query=");
+        additionalQueryString.append("&query=");
 
         // Note: we encode using UTF8 since it's the W3C recommendation.
         // See http://www.w3.org/TR/html40/appendix/notes.html#non-ascii-chars
-        String fullURL = String.format("%s%s%s%s", youTrackServer.getURL(), JQL_URL_PREFIX, additionalQueryString,
-                encode(jqlQuery));
+        String fullURL = String.format("%s%s%s", this.youtrackFetcher.getEndpoint(youTrackServer).getIssuesURL(),
+            additionalQueryString, encode(jqlQuery));
         this.logger.debug("Computed YouTrack URL [{}]", fullURL);
 
         return fullURL;
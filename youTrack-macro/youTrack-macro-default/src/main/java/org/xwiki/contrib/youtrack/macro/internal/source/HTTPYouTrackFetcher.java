@@ -19,37 +19,43 @@
  */
 package org.xwiki.contrib.youtrack.macro.internal.source;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.AuthCache;
-import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.entity.DeflateInputStream;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.impl.auth.BasicScheme;
-import org.apache.http.impl.client.BasicAuthCache;
-import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
-import org.jdom2.Document;
-import org.jdom2.input.SAXBuilder;
+import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
 
 /**
- * Fetches remotely the XML content at the passed URL.
+ * Fetches remotely the JSON content at the passed URL.
  *
  * @version $Id$
  * @since 8.5
@@ -60,122 +66,336 @@ public class HTTPYouTrackFetcher
 {
     private static final ErrorMessageExtractor EXTRACTOR = new ErrorMessageExtractor();
 
+    private static final YouTrackIssueDecoder DECODER = new YouTrackIssueDecoder();
+
+    /**
+     * Decodes the content of a successful response.
+     *
+     * @param <T> the type of the decoded content
+     */
+    @FunctionalInterface
+    private interface ContentDecoder<T>
+    {
+        T decode(InputStream stream, Charset charset) throws IOException;
+    }
+
+    /**
+     * The results the responses are decoded to. Identical requests are only shared when they expect the same result.
+     */
+    private enum ResultType
+    {
+        ISSUE,
+        ISSUES
+    }
+
     /**
-     * @param urlString the full YouTrack URL to call
+     * Default maximum time (in milliseconds) to wait for the result of an identical in-flight request.
+     */
+    private static final long DEFAULT_WAIT_TIMEOUT = 60000;
+
+    private static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+
+    private static final List<String> GZIP_ENCODINGS = Arrays.asList("gzip", "x-gzip");
+
+    private static final String DEFLATE_ENCODING = "deflate";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    @Inject
+    private YouTrackHTTPClientRegistry clientRegistry;
+
+    @Inject
+    private YouTrackCircuitBreaker circuitBreaker;
+
+    @Inject
+    private YouTrackRetryPolicy retryPolicy;
+
+    @Inject
+    private YouTrackRateLimiter rateLimiter;
+
+    @Inject
+    private YouTrackStatistics statistics;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The requests currently being executed, indexed by result type, URL and credentials.
+     */
+    private final Map<List<Object>, CompletableFuture<Object>> inFlightRequests = new ConcurrentHashMap<>();
+
+    /**
+     * @param youTrackServer the YouTrack server to call
+     * @return the data needed to send requests to the passed server (host, authentication, REST API URLs), computed
+     *         once per server
+     * @since 1.1
+     */
+    public YouTrackEndpoint getEndpoint(YouTrackServer youTrackServer)
+    {
+        return this.clientRegistry.getEndpoint(youTrackServer);
+    }
+
+    /**
+     * @param urlString the full YouTrack URL to call, returning a single issue
      * @param youTrackServer the youtrack server data containing optional credentials (used to setup preemptive basic
      * authentication
-     * @return the {@link Document} object containing the XML data
+     * @return the issue, decoded directly from the response stream
      * @throws Exception if an error happened during the fetch or if the passed URL is malformed
      */
-    public JsonObject fetch(String urlString, YouTrackServer youTrackServer) throws Exception
+    public ItemObject fetchIssue(String urlString, YouTrackServer youTrackServer) throws Exception
     {
-        HttpGet httpGet = new HttpGet(urlString);
-        CloseableHttpClient httpClient = createHttpClientBuilder(youTrackServer).build();
-
-        HttpHost targetHost = createHttpHost(youTrackServer);
-        HttpClientContext context = HttpClientContext.create();
-        setPreemptiveBasicAuthentication(context, youTrackServer, targetHost);
+        YouTrackIssueReader issueReader = getEndpoint(youTrackServer).getIssueReader();
+        return fetch(urlString, youTrackServer, ResultType.ISSUE,
+            (stream, charset) -> DECODER.decodeIssue(stream, charset, issueReader));
+    }
 
-        return retrieveRemoteDocument(httpClient, httpGet, targetHost, context);
+    /**
+     * @param urlString the full YouTrack URL to call, returning a list of issues
+     * @param youTrackServer the youtrack server data containing optional credentials (used to setup preemptive basic
+     * authentication
+     * @return the issues, decoded directly from the response stream. The returned list can be shared with concurrent
+     *         callers and is thus not modifiable
+     * @throws Exception if an error happened during the fetch or if the passed URL is malformed
+     */
+    public List<ItemObject> fetchIssues(String urlString, YouTrackServer youTrackServer) throws Exception
+    {
+        YouTrackIssueReader issueReader = getEndpoint(youTrackServer).getIssueReader();
+        return fetch(urlString, youTrackServer, ResultType.ISSUES,
+            (stream, charset) -> Collections.unmodifiableList(DECODER.decodeIssues(stream, charset, issueReader)));
     }
 
-    public List<JsonObject> fetchList(String urlString, YouTrackServer youTrackServer) throws Exception
+    /**
+     * Make sure that concurrent identical requests are only sent once: the first caller executes the request and the
+     * other callers wait for its result (or failure), see {@link #getWaitTimeout(YouTrackServer)}.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T fetch(String urlString, YouTrackServer youTrackServer, ResultType resultType,
+        ContentDecoder<T> decoder) throws Exception
     {
-        HttpGet httpGet = new HttpGet(urlString);
-        CloseableHttpClient httpClient = createHttpClientBuilder(youTrackServer).build();
+        List<Object> key =
+            Arrays.asList(resultType, urlString, youTrackServer.getUsername(), youTrackServer.getPassword());
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlightFuture = this.inFlightRequests.putIfAbsent(key, future);
+        if (inFlightFuture != null) {
+            return (T) waitFor(inFlightFuture, urlString, youTrackServer);
+        }
 
-        HttpHost targetHost = createHttpHost(youTrackServer);
-        HttpClientContext context = HttpClientContext.create();
-        setPreemptiveBasicAuthentication(context, youTrackServer, targetHost);
+        try {
+            T result = sendWithRetries(urlString, youTrackServer, decoder);
+            future.complete(result);
+            return result;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlightRequests.remove(key, future);
+        }
+    }
 
-        return retrieveRemoteDocumentsList(httpClient, httpGet, targetHost, context);
+    private Object waitFor(CompletableFuture<Object> future, String urlString, YouTrackServer youTrackServer)
+        throws Exception
+    {
+        try {
+            return future.get(getWaitTimeout(youTrackServer), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // Fail the same way as the caller which executed the request.
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (TimeoutException e) {
+            throw new Exception(String.format("Timed out waiting for the identical in-flight request. URL = [%s]",
+                urlString), e);
+        }
     }
 
+    /**
+     * @param youTrackServer the YouTrack server being called
+     * @return the maximum time (in milliseconds) to wait for the result of an identical request already sent to the
+     *         passed server by another thread
+     */
+    protected long getWaitTimeout(YouTrackServer youTrackServer)
+    {
+        // The last attempt of the request can start when the retry deadline is reached.
+        long retryDuration = this.retryPolicy.getRetryDuration();
+        if (youTrackServer.getConnectTimeout() <= 0 || youTrackServer.getReadTimeout() <= 0
+            || youTrackServer.getConnectionRequestTimeout() <= 0) {
+            return retryDuration + DEFAULT_WAIT_TIMEOUT;
+        }
+        // Leave enough time for each attempt to wait for the rate limiter, for a request permit and for a pooled
+        // connection, to connect and to read the whole response.
+        return retryDuration + youTrackServer.getConnectionRequestTimeout() * 3L + youTrackServer.getConnectTimeout()
+            + youTrackServer.getReadTimeout() * 2L;
+    }
 
-    private void setPreemptiveBasicAuthentication(HttpClientContext context, YouTrackServer youTrackServer,
-                                                  HttpHost targetHost)
+    private <T> T sendWithRetries(String urlString, YouTrackServer youTrackServer, ContentDecoder<T> decoder)
+        throws Exception
     {
-        // Connect to YouTrack using basic authentication if username and password are defined
-        // Note: Set up preemptive basic authentication since YouTrack can accept both
-        // unauthenticated and authenticated
-        // requests. See https://developer.atlassian.com/server/youtrack/platform/basic-authentication/
-        if (StringUtils.isNotBlank(youTrackServer.getUsername()) && StringUtils.isNotBlank(youTrackServer
-                .getPassword())) {
-            CredentialsProvider provider = new BasicCredentialsProvider();
-            provider.setCredentials(
-                new AuthScope(targetHost.getHostName(), targetHost.getPort()),
-                new UsernamePasswordCredentials(youTrackServer.getUsername(), youTrackServer.getPassword()));
-            // Create AuthCache instance
-            AuthCache authCache = new BasicAuthCache();
-            // Generate BASIC scheme object and add it to the local auth cache
-            BasicScheme basicAuth = new BasicScheme();
-            authCache.put(targetHost, basicAuth);
-            // Add AuthCache to the execution context
-            context.setCredentialsProvider(provider);
-            context.setAuthCache(authCache);
+        long deadline = this.retryPolicy.getDeadline();
+        for (int attempt = 1;; attempt++) {
+            try {
+                return sendIfAvailable(urlString, youTrackServer, decoder);
+            } catch (Exception e) {
+                long delay = this.retryPolicy.getRetryDelay(youTrackServer, e, attempt, deadline);
+                if (delay == YouTrackRetryPolicy.NO_RETRY) {
+                    this.statistics.increment(youTrackServer, YouTrackStatistics.FAILURES);
+                    throw e;
+                }
+                this.logger.debug("Retrying YouTrack request [{}] in [{}] ms. Root cause: [{}]", urlString, delay,
+                    e.getMessage());
+                this.statistics.increment(youTrackServer, YouTrackStatistics.RETRIES);
+                Thread.sleep(delay);
+            }
         }
     }
 
-    private HttpHost createHttpHost(YouTrackServer server) throws MalformedURLException
+    private <T> T sendIfAvailable(String urlString, YouTrackServer youTrackServer, ContentDecoder<T> decoder)
+        throws Exception
     {
-        URL youtrackURL = new URL(server.getURL());
-        return new HttpHost(youtrackURL.getHost(), youtrackURL.getPort(), youtrackURL.getProtocol());
+        // Check the circuit breaker first so that the requests to a server known to be unavailable fail right away,
+        // without taking the rate limiter tokens of the other requests.
+        if (!this.circuitBreaker.tryAcquire(youTrackServer)) {
+            throw new Exception(String.format(
+                "The calls to the YouTrack server are suspended after too many failures. URL = [%s]", urlString));
+        }
+
+        Semaphore permits;
+        try {
+            if (!this.rateLimiter.acquire(youTrackServer)) {
+                throw new Exception(String.format(
+                    "The request rate allowed for the YouTrack server has been exceeded. URL = [%s]", urlString));
+            }
+            permits = acquireRequestPermit(urlString, youTrackServer);
+        } catch (Exception e) {
+            // The request is not sent.
+            this.circuitBreaker.release(youTrackServer);
+            throw e;
+        }
+
+        try {
+            return sendAndReport(urlString, youTrackServer, decoder);
+        } finally {
+            if (permits != null) {
+                permits.release();
+            }
+        }
     }
 
-    protected JsonObject retrieveRemoteDocument(CloseableHttpClient httpClient, HttpGet httpGet, HttpHost targetHost,
-        HttpClientContext context) throws Exception
+    /**
+     * Only hold the permit while the request is being sent, so that the requests waiting before being retried (or
+     * waiting for the rate limiter) don't prevent the other requests from being sent.
+     *
+     * @return the permits the acquired permit must be released to, or {@code null} if the number of concurrent
+     *         requests is not limited
+     */
+    private Semaphore acquireRequestPermit(String urlString, YouTrackServer youTrackServer) throws Exception
     {
-        try (CloseableHttpResponse response = httpClient.execute(targetHost, httpGet, context)) {
-            // Only parse the content if there was no error.
-            if (response.getStatusLine().getStatusCode() >= 200 && response.getStatusLine().getStatusCode() < 300) {
-                HttpEntity entity = response.getEntity();
-                String responseString = EntityUtils.toString(entity);
-                return new Gson().fromJson(responseString, JsonObject.class);
-            } else {
-                // The error message is in the HTML. We extract it to perform some good error-reporting, by extracting
-                // it from the <h1> tag.
-                throw new Exception(String.format("Error = [%s]. URL = [%s]",
-                EXTRACTOR.extract(response.getEntity().getContent()), httpGet.getURI().toString()));
+        Semaphore permits = this.clientRegistry.getRequestPermits(youTrackServer);
+        if (permits != null) {
+            long timeout = youTrackServer.getConnectionRequestTimeout();
+            if (timeout <= 0) {
+                permits.acquire();
+            } else if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new Exception(String.format("Too many concurrent requests to the YouTrack server. URL = [%s]",
+                    urlString));
             }
         }
+        return permits;
     }
 
-    protected List<JsonObject> retrieveRemoteDocumentsList(CloseableHttpClient httpClient, HttpGet httpGet, HttpHost targetHost,
-                                                      HttpClientContext context) throws Exception
+    /**
+     * Send the request and report its outcome to the circuit breaker.
+     */
+    private <T> T sendAndReport(String urlString, YouTrackServer youTrackServer, ContentDecoder<T> decoder)
+        throws Exception
     {
-        try (CloseableHttpResponse response = httpClient.execute(targetHost, httpGet, context)) {
-            // Only parse the content if there was no error.
-            if (response.getStatusLine().getStatusCode() >= 200 && response.getStatusLine().getStatusCode() < 300) {
-                HttpEntity entity = response.getEntity();
-                String responseString = EntityUtils.toString(entity);
-                return Arrays.asList(new Gson().fromJson(responseString, JsonObject[].class));
+        this.statistics.increment(youTrackServer, YouTrackStatistics.REQUESTS);
+        boolean serverFailure = true;
+        try {
+            T result = send(urlString, youTrackServer, decoder);
+            serverFailure = false;
+            return result;
+        } catch (Exception e) {
+            serverFailure = this.circuitBreaker.isServerFailure(e);
+            throw e;
+        } finally {
+            if (serverFailure) {
+                this.circuitBreaker.onFailure(youTrackServer);
             } else {
-                // The error message is in the HTML. We extract it to perform some good error-reporting, by extracting
-                // it from the <h1> tag.
-                throw new Exception(String.format("Error = [%s]. URL = [%s]",
-                        EXTRACTOR.extract(response.getEntity().getContent()), httpGet.getURI().toString()));
+                this.circuitBreaker.onSuccess(youTrackServer);
             }
         }
     }
 
-    protected HttpClientBuilder createHttpClientBuilder(YouTrackServer youTrackServer)
+    private <T> T send(String urlString, YouTrackServer youTrackServer, ContentDecoder<T> decoder) throws Exception
     {
-        // Allows system properties to override our default config (by calling useSystemProperties() first).
-        HttpClientBuilder builder = HttpClientBuilder.create().useSystemProperties();
-        return builder.setUserAgent("XWikiYouTrackMacro");
+        HttpGet httpGet = new HttpGet(urlString);
+        // The content compression is disabled in the HTTP clients (see YouTrackHTTPClientRegistry) so that we can
+        // measure the transferred data: the compressed responses are requested and decompressed here.
+        httpGet.setHeader(HttpHeaders.ACCEPT_ENCODING, ACCEPTED_ENCODINGS);
+
+        YouTrackEndpoint endpoint = getEndpoint(youTrackServer);
+        endpoint.authenticate(httpGet);
+        HttpHost targetHost = endpoint.getHost();
+
+        // The client is not closed while the request is in progress, even if the server is modified in the meantime.
+        CloseableHttpClient httpClient = this.clientRegistry.acquireHttpClient(youTrackServer);
+        try (CloseableHttpResponse response = httpClient.execute(targetHost, httpGet)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                // E.g. a 204 (No Content) response, or an error without details.
+                throw new YouTrackResponseException(String.format("Error = [Empty response]. URL = [%s]",
+                    httpGet.getURI().toString()), statusCode, getRetryAfter(response));
+            }
+            CountingInputStream received = new CountingInputStream(entity.getContent());
+            CountingInputStream decompressed = new CountingInputStream(decompress(received, entity));
+            try (InputStream stream = decompressed) {
+                // Only parse the content if there was no error.
+                if (statusCode >= 200 && statusCode < 300) {
+                    Charset charset = ContentType.getOrDefault(entity).getCharset();
+                    return decoder.decode(stream, charset != null ? charset : StandardCharsets.UTF_8);
+                } else {
+                    // The error message is in the HTML. We extract it to perform some good error-reporting, by
+                    // extracting it from the <h1> tag.
+                    throw new YouTrackResponseException(String.format("Error = [%s]. URL = [%s]",
+                        EXTRACTOR.extract(stream), httpGet.getURI().toString()), statusCode,
+                        getRetryAfter(response));
+                }
+            } finally {
+                this.statistics.add(youTrackServer, YouTrackStatistics.BYTES_RECEIVED, received.getByteCount());
+                this.statistics.add(youTrackServer, YouTrackStatistics.BYTES_DECOMPRESSED,
+                    decompressed.getByteCount());
+            }
+        } finally {
+            this.clientRegistry.releaseHttpClient(httpClient);
+        }
+    }
+
+    private String getRetryAfter(CloseableHttpResponse response)
+    {
+        Header retryAfter = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        return retryAfter != null ? retryAfter.getValue() : null;
     }
 
     /**
-     * @return the SAXBuilder instance to use to retrieve the data
+     * @param stream the response content, as received
+     * @param entity the response entity
+     * @return the decompressed response content, streamed from the passed stream
+     * @throws IOException if the content is not properly compressed
      */
-    private SAXBuilder createSAXBuilder()
+    private InputStream decompress(InputStream stream, HttpEntity entity) throws IOException
     {
-        // Note: SAXBuilder is not thread-safe which is why we're instantiating a new one every time.
-        SAXBuilder builder = new SAXBuilder();
-        // Note: Prevent XXE attacks by disabling completely DTDs. This is possible since YouTrack
-        // returns an XML content
-        // that doesn't use a DTD.
-        builder.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-        return builder;
+        Header contentEncoding = entity.getContentEncoding();
+        if (contentEncoding != null) {
+            for (HeaderElement encoding : contentEncoding.getElements()) {
+                String name = encoding.getName().toLowerCase(Locale.ROOT);
+                if (GZIP_ENCODINGS.contains(name)) {
+                    return new GZIPInputStream(stream, BUFFER_SIZE);
+                } else if (DEFLATE_ENCODING.equals(name)) {
+                    // Handles both the zlib format required by the HTTP specification and the raw deflate format
+                    // sent by some servers.
+                    return new DeflateInputStream(stream);
+                }
+            }
+        }
+        return stream;
     }
 }
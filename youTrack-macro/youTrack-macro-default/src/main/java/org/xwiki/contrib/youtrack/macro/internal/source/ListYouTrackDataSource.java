@@ -19,28 +19,49 @@
  */
 package org.xwiki.contrib.youtrack.macro.internal.source;
 
-import com.google.gson.JsonObject;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.YouTrackFields;
 import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
 import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
 import org.xwiki.rendering.macro.MacroExecutionException;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
 
 
 /**
  * Takes a discrete list of YouTrack issues from the Macro content and return their field values.
  *
- * The format is one issue id per line, ignoring any data after the pipe symbol (used to add some notes).
+ * The format is one issue id per line, ignoring any data after the pipe symbol (used to add some notes). All issues are
+ * fetched using a single {@code issue id:} query (split in several queries for long lists) unless the
+ * {@code source.list.batch} extra parameter is set to {@code false}, in which case they are fetched one by one, several
+ * at a time (see {@link YouTrackIssueFetchExecutor}). Ids which don't look like {@code PROJECT-123} are always fetched
+ * one by one, so that they cannot change the meaning of the query. An issue that cannot be retrieved is displayed as a
+ * placeholder holding the error.
  * <p/>
  * Example:
  * <code><pre>
@@ -62,8 +83,35 @@ public class ListYouTrackDataSource extends AbstractYouTrackDataSource
      */
     private static final String PIPE = "|";
 
+    /**
+     * Extra macro parameter allowing to disable the batch mode (i.e. fetch issues one by one) by setting it to
+     * {@code false}, for YouTrack servers not supporting {@code issue id:} queries for the used ids.
+     */
+    private static final String BATCH_PARAMETER = "source.list.batch";
+
+    private static final String ID_QUERY_PREFIX = "issue id: ";
+
+    private static final String ID_SEPARATOR = ", ";
+
+    /**
+     * Maximum length of the issue ids part of a batch query, to keep the URL under the usual server limits once
+     * encoded.
+     */
+    private static final int MAX_QUERY_LENGTH = 1500;
+
+    /**
+     * The issue ids which can safely be put in an {@code issue id:} query (project short name and issue number).
+     */
+    private static final Pattern BATCH_ID_PATTERN = Pattern.compile("[\\p{L}\\p{N}_]+-\\d+");
+
+    @Inject
+    private YouTrackIssueBatcher issueBatcher;
+
+    @Inject
+    private YouTrackIssueFetchExecutor issueFetchExecutor;
+
     @Override
-    public List<ItemObject> getData(String macroContent, YouTrackMacroParameters parameters)
+    public List<ItemObject> getData(String macroContent, YouTrackMacroParameters parameters, YouTrackFields fields)
         throws MacroExecutionException
     {
         YouTrackServer youTrackServer = getYouTrackServer(parameters);
@@ -73,32 +121,274 @@ public class ListYouTrackDataSource extends AbstractYouTrackDataSource
             throw new MacroExecutionException("Empty list of YouTrack ids!");
         }
 
-        return buildIssues(ids, youTrackServer, parameters);
+        return buildIssues(ids, youTrackServer, parameters, YouTrackFieldProjection.of(fields));
     }
 
     /**
 
      * @param issueIds the list of YouTrack issue ids specified by the user
+     * @param projection the issue data to fetch
      * @return the list of YouTrack issues (returned as XML elements), in the same order as the
      * YouTrack issue id list specified
      *         by the user
      */
     public List<ItemObject> buildIssues(List<Pair<String, String>> issueIds,
-                                        YouTrackServer youTrackServer, YouTrackMacroParameters parameters)
+                                        YouTrackServer youTrackServer, YouTrackMacroParameters parameters,
+                                        YouTrackFieldProjection projection)
             throws MacroExecutionException
     {
-        // Note: YouTrack doesn't return items in the order specified in the JQL query, thus we need to manually order
-        // them in the same order as passed in the issueIds parameter.
+        if (isBatchEnabled(parameters)) {
+            return buildIssuesInBatch(issueIds, youTrackServer, projection);
+        }
+
+        ExecutorService executor = this.issueFetchExecutor.getExecutor(youTrackServer);
+        if (executor == null) {
+            List<ItemObject> issues = new ArrayList<>();
+            for (Pair<String, String> id : issueIds) {
+                ItemObject issue;
+                try {
+                    issue = getIssue(youTrackServer, id.getLeft(), projection);
+                } catch (MacroExecutionException e) {
+                    // Display the other issues, as when they are fetched in parallel.
+                    issue = createErrorIssue(id.getLeft(), youTrackServer, e);
+                }
+                issues.add(issue.withNote(id.getRight()));
+            }
+            return issues;
+        }
+
+        return buildIssuesInParallel(issueIds, youTrackServer, projection, executor);
+    }
+
+    /**
+     * Fetch the passed issues one by one, several at a time. An issue that cannot be retrieved is replaced by a
+     * placeholder holding the error, so that the other issues are still displayed.
+     *
+     * @param issueIds the list of YouTrack issue ids specified by the user, along with their optional notes
+     * @param youTrackServer the YouTrack server to query
+     * @param projection the issue data to fetch
+     * @param executor the executor limiting the number of issues fetched at the same time from the server
+     * @return the list of YouTrack issues, in the same order as the YouTrack issue id list specified by the user
+     * @throws MacroExecutionException if the rendering thread is interrupted
+     */
+    private List<ItemObject> buildIssuesInParallel(List<Pair<String, String>> issueIds, YouTrackServer youTrackServer,
+        YouTrackFieldProjection projection, ExecutorService executor) throws MacroExecutionException
+    {
+        // The issues found in the request or in the cache are resolved right away, in the rendering thread (which
+        // holds the request prefetched issues).
+        Map<String, Future<ItemObject>> futures = new HashMap<>();
+        for (Pair<String, String> id : issueIds) {
+            String normalizedId = normalizeId(id.getLeft());
+            if (!futures.containsKey(normalizedId)) {
+                ItemObject issue = getCachedIssue(youTrackServer, id.getLeft(), projection);
+                futures.put(normalizedId, issue != null ? CompletableFuture.completedFuture(issue)
+                    : submit(executor, () -> getIssue(youTrackServer, id.getLeft(), projection)));
+            }
+        }
+
+        List<ItemObject> issues = new ArrayList<>(issueIds.size());
+        try {
+            for (Pair<String, String> id : issueIds) {
+                issues.add(getResult(futures.get(normalizeId(id.getLeft())), id.getLeft(), youTrackServer)
+                    .withNote(id.getRight()));
+            }
+        } catch (InterruptedException e) {
+            futures.values().forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new MacroExecutionException("Interrupted while fetching the YouTrack issues", e);
+        }
+        return issues;
+    }
+
+    private Future<ItemObject> submit(ExecutorService executor, Callable<ItemObject> task)
+    {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            // The executor is being disposed.
+            FutureTask<ItemObject> future = new FutureTask<>(task);
+            future.run();
+            return future;
+        }
+    }
+
+    private ItemObject getResult(Future<ItemObject> future, String issueId, YouTrackServer youTrackServer)
+        throws InterruptedException
+    {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return createErrorIssue(issueId, youTrackServer, cause);
+        }
+    }
+
+    private ItemObject createErrorIssue(String issueId, YouTrackServer youTrackServer, Throwable cause)
+    {
+        this.logger.warn("Failed to retrieve YouTrack issue [{}]. Root cause: [{}]", issueId,
+            ExceptionUtils.getRootCauseMessage(cause));
+        this.logger.debug("Full stack trace:", cause);
+        return createErrorIssue(issueId, youTrackServer, ExceptionUtils.getRootCauseMessage(cause));
+    }
+
+    private ItemObject createErrorIssue(String issueId, YouTrackServer youTrackServer, String error)
+    {
+        return ItemObject.error(issueId, youTrackServer.getURL() + "/issue/" + issueId, error);
+    }
+
+    /**
+     * Fetch all the passed issues using as few {@code issue id: A, B, C} queries as possible.
+     *
+     * @param issueIds the ids of the issues to get
+     * @param youTrackServer the YouTrack server to query
+     * @param projection the issue data to fetch
+     * @return the YouTrack issues, in the same order as the passed ids. Issues that YouTrack didn't return and ids
+     *         that cannot be part of an {@code issue id:} query are skipped
+     * @throws MacroExecutionException if the YouTrack issues cannot be retrieved
+     */
+    public List<ItemObject> getIssues(Collection<String> issueIds, YouTrackServer youTrackServer,
+        YouTrackFieldProjection projection) throws MacroExecutionException
+    {
+        return new ArrayList<>(getIssuesInBatch(issueIds, youTrackServer, projection, new ArrayList<>()).values());
+    }
+
+    /**
+     * Fetch all the passed issues using as few {@code issue id: A, B, C} queries as possible. Issues found in the
+     * issue cache are not fetched again, and ids which cannot be part of such a query are fetched one by one.
+     *
+     * @param issueIds the list of YouTrack issue ids specified by the user, along with their optional notes
+     * @param youTrackServer the YouTrack server to query
+     * @param projection the issue data to fetch
+     * @return the list of YouTrack issues, in the same order as the YouTrack issue id list specified by the user.
+     *         Issues that cannot be retrieved (e.g. that YouTrack didn't return) are replaced by a placeholder holding
+     *         the error
+     * @throws MacroExecutionException if the YouTrack issues cannot be retrieved
+     */
+    protected List<ItemObject> buildIssuesInBatch(List<Pair<String, String>> issueIds, YouTrackServer youTrackServer,
+        YouTrackFieldProjection projection) throws MacroExecutionException
+    {
+        Set<String> distinctIds = new LinkedHashSet<>();
+        for (Pair<String, String> id : issueIds) {
+            distinctIds.add(id.getLeft());
+        }
+        List<String> unbatchedIds = new ArrayList<>();
+        Map<String, ItemObject> issuesById = getIssuesInBatch(distinctIds, youTrackServer, projection, unbatchedIds);
+        for (String issueId : unbatchedIds) {
+            try {
+                issuesById.put(normalizeId(issueId), getIssue(youTrackServer, issueId, projection));
+            } catch (MacroExecutionException e) {
+                issuesById.put(normalizeId(issueId), createErrorIssue(issueId, youTrackServer, e));
+            }
+        }
 
-        List<ItemObject> issues = new ArrayList<>();
+        // Note: YouTrack doesn't return items in the order specified in the query, thus we need to manually order
+        // them in the same order as passed in the issueIds parameter.
+        List<ItemObject> issues = new ArrayList<>(issueIds.size());
         for (Pair<String, String> id : issueIds) {
-            JsonObject document = getJsonDocument(youTrackServer, id.getLeft(), parameters.getMaxCount());
-            issues.add(buildIssues(document, youTrackServer));
+            ItemObject issue = issuesById.get(normalizeId(id.getLeft()));
+            if (issue == null) {
+                this.logger.debug("YouTrack issue [{}] wasn't returned by [{}]", id.getLeft(), youTrackServer.getURL());
+                issue = createErrorIssue(id.getLeft(), youTrackServer,
+                    String.format("Issue [%s] not found", id.getLeft()));
+            }
+            issues.add(issue.withNote(id.getRight()));
+        }
+        return issues;
+    }
+
+    /**
+     * @param issueIds the ids of the issues to get
+     * @param youTrackServer the YouTrack server to query
+     * @param projection the issue data to fetch
+     * @param unbatchedIds collects the ids of the issues which are not cached and cannot be part of an
+     *            {@code issue id:} query
+     * @return the issues found in the cache or returned by YouTrack, indexed by normalized id
+     * @throws MacroExecutionException if the YouTrack issues cannot be retrieved
+     */
+    private Map<String, ItemObject> getIssuesInBatch(Collection<String> issueIds, YouTrackServer youTrackServer,
+        YouTrackFieldProjection projection, Collection<String> unbatchedIds) throws MacroExecutionException
+    {
+        Map<String, ItemObject> issuesById = new LinkedHashMap<>();
+        Set<String> missingIds = new LinkedHashSet<>();
+        for (String issueId : issueIds) {
+            ItemObject issue = getCachedIssue(youTrackServer, issueId, projection);
+            if (issue != null) {
+                issuesById.put(normalizeId(issueId), issue);
+            } else if (BATCH_ID_PATTERN.matcher(issueId).matches()) {
+                missingIds.add(issueId);
+            } else {
+                // The id would change the meaning of the query (e.g. if it contains a comma).
+                unbatchedIds.add(issueId);
+            }
+        }
+
+        if (!missingIds.isEmpty()) {
+            // Small lookups are merged with the ones made concurrently by other macros.
+            for (ItemObject issue : this.issueBatcher.get(youTrackServer, missingIds, projection,
+                ids -> fetchIssues(ids, youTrackServer, projection))) {
+                if (issue.getId() != null) {
+                    issuesById.put(normalizeId(issue.getId()), issue);
+                }
+            }
         }
+        return issuesById;
+    }
 
+    private List<ItemObject> fetchIssues(Collection<String> ids, YouTrackServer youTrackServer,
+        YouTrackFieldProjection projection) throws MacroExecutionException
+    {
+        List<ItemObject> issues = new ArrayList<>(ids.size());
+        for (List<String> chunk : splitIds(ids)) {
+            issues.addAll(getIssuesByJQL(youTrackServer, computeIdQuery(chunk), chunk.size(), projection));
+        }
         return issues;
     }
 
+    /**
+     * @param distinctIds the distinct issue ids to fetch
+     * @return the issue ids, grouped so that the query built for each group stays under {@link #MAX_QUERY_LENGTH}
+     */
+    private List<List<String>> splitIds(Collection<String> distinctIds)
+    {
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> chunk = new ArrayList<>();
+        int chunkLength = 0;
+        for (String id : distinctIds) {
+            if (!chunk.isEmpty() && chunkLength + id.length() + ID_SEPARATOR.length() > MAX_QUERY_LENGTH) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                chunkLength = 0;
+            }
+            chunk.add(id);
+            chunkLength += id.length() + ID_SEPARATOR.length();
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private String computeIdQuery(List<String> ids)
+    {
+        return ID_QUERY_PREFIX + StringUtils.join(ids, ID_SEPARATOR);
+    }
+
+    private String normalizeId(String id)
+    {
+        // YouTrack issue ids are case insensitive
+        return id.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * @param parameters the macro parameters
+     * @return true if the issues should be fetched with a few {@code issue id:} queries, false to fetch them one by
+     *         one
+     */
+    public boolean isBatchEnabled(YouTrackMacroParameters parameters)
+    {
+        return !Boolean.FALSE.toString().equalsIgnoreCase(parameters.getParameters().getProperty(BATCH_PARAMETER));
+    }
+
     /**
      * @param macroContent the macro content listing YouTrack issue ids and optional notes
      * @return the list of issue ids and optional notes specified in the macro content
@@ -19,17 +19,18 @@
  */
 package org.xwiki.contrib.youtrack.macro.internal.source;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.YouTrackFields;
 import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
 import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
 import org.xwiki.rendering.macro.MacroExecutionException;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.util.ArrayList;
@@ -57,8 +58,18 @@ import java.util.List;
 @Singleton
 public class SearchYouTrackDataSource extends AbstractYouTrackDataSource
 {
+    /**
+     * Extra macro parameter to configure the number of issues fetched with each request.
+     */
+    private static final String PAGE_SIZE_PARAMETER = "source.jql.pageSize";
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    @Inject
+    private YouTrackQueryCache queryCache;
+
     @Override
-    public List<ItemObject> getData(String macroContent, YouTrackMacroParameters parameters)
+    public List<ItemObject> getData(String macroContent, YouTrackMacroParameters parameters, YouTrackFields fields)
         throws MacroExecutionException
     {
         YouTrackServer youTrackServer = getYouTrackServer(parameters);
@@ -68,29 +79,31 @@ public class SearchYouTrackDataSource extends AbstractYouTrackDataSource
             throw new MacroExecutionException("Missing JQL query!");
         }
 
-        return buildIssues(macroContent, youTrackServer, parameters);
+        return buildIssues(macroContent, youTrackServer, parameters, YouTrackFieldProjection.of(fields));
     }
 
     /**
 
      * @param macroContent the jql request YouTrack specified by the user
+     * @param projection the issue data to fetch
      * @return the list of YouTrack issues (returned as XML elements), in the same order as the
      * YouTrack issue id list specified
      *         by the user
      */
     public List<ItemObject> buildIssues(String macroContent,
-                                        YouTrackServer youTrackServer, YouTrackMacroParameters parameters)
+                                        YouTrackServer youTrackServer, YouTrackMacroParameters parameters,
+                                        YouTrackFieldProjection projection)
             throws MacroExecutionException
     {
-        // Note: YouTrack doesn't return items in the order specified in the JQL query, thus we need to manually order
-        // them in the same order as passed in the issueIds parameter.
-
-        List<ItemObject> issues = new ArrayList<>();
-        List<JsonObject> documentsList = getJsonDocumentByJQL(youTrackServer, macroContent, parameters.getMaxCount());
-        for (JsonObject issue : documentsList) {
-            issues.add(buildIssues(issue, youTrackServer));
-        }
+        int maxCount = parameters.getMaxCount();
+        int pageSize = getPageSize(parameters);
+        return this.queryCache.get(youTrackServer, macroContent, maxCount, projection,
+            () -> getIssuesByJQL(youTrackServer, macroContent, maxCount, pageSize, projection));
+    }
 
-        return issues;
+    private int getPageSize(YouTrackMacroParameters parameters)
+    {
+        int pageSize = NumberUtils.toInt(parameters.getParameters().getProperty(PAGE_SIZE_PARAMETER), DEFAULT_PAGE_SIZE);
+        return pageSize > 0 ? pageSize : DEFAULT_PAGE_SIZE;
     }
 }
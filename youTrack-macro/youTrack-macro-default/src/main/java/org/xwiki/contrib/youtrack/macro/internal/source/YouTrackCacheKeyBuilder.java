@@ -0,0 +1,74 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+
+/**
+ * Builds the {@link String} keys used by the YouTrack caches. Each part is prefixed by its length so that any
+ * character can safely be used in the parts without risking collisions between keys.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+final class YouTrackCacheKeyBuilder
+{
+    private static final char SEPARATOR = ':';
+
+    private final StringBuilder key = new StringBuilder();
+
+    /**
+     * @param youTrackServer the YouTrack server the cached data comes from
+     * @return a new builder starting with the server URL and user name, since the data visible depends on the user
+     */
+    static YouTrackCacheKeyBuilder forServer(YouTrackServer youTrackServer)
+    {
+        return new YouTrackCacheKeyBuilder().append(youTrackServer.getURL()).append(youTrackServer.getUsername());
+    }
+
+    /**
+     * @param part the part to add to the key, can be {@code null}
+     * @return this builder
+     */
+    YouTrackCacheKeyBuilder append(String part)
+    {
+        if (part == null) {
+            this.key.append(SEPARATOR);
+        } else {
+            this.key.append(part.length()).append(SEPARATOR).append(part);
+        }
+        return this;
+    }
+
+    /**
+     * @param part the part to add to the key
+     * @return this builder
+     */
+    YouTrackCacheKeyBuilder append(int part)
+    {
+        return append(String.valueOf(part));
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.key.toString();
+    }
+}
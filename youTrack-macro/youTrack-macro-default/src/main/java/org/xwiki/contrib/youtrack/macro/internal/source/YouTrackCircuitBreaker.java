@@ -0,0 +1,332 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.http.HttpStatus;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suspends the calls to a YouTrack server when too many of the last requests sent to it failed (see
+ * {@link YouTrackConfiguration#getCircuitBreakerFailureRate()}), so that pages fail fast (or display cached data)
+ * instead of waiting for the connection timeouts while the server is down.
+ * <p>
+ * Once {@link YouTrackConfiguration#getCircuitBreakerCoolDown()} seconds have passed, a few trial requests are let
+ * through: the calls resume if they all succeed, and are suspended again otherwise.
+ * <p>
+ * Connection errors, server errors ({@code 5xx}) and {@code 429 Too Many Requests} responses are counted as failures:
+ * a server asking to slow down should be called less often, even though it's still answering.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component(roles = {YouTrackCircuitBreaker.class})
+@Singleton
+public class YouTrackCircuitBreaker implements Initializable
+{
+    /**
+     * The states of the circuit breaker of a YouTrack server.
+     */
+    public enum State
+    {
+        /**
+         * Requests are sent to the server.
+         */
+        CLOSED,
+
+        /**
+         * Requests are rejected without being sent to the server.
+         */
+        OPEN,
+
+        /**
+         * A few trial requests are sent to the server to check if it's back.
+         */
+        HALF_OPEN
+    }
+
+    private final class Breaker
+    {
+        private final String url;
+
+        /**
+         * The outcome of the last requests, {@code true} for a failure.
+         */
+        private final boolean[] outcomes = new boolean[window];
+
+        private int count;
+
+        private int index;
+
+        private int failures;
+
+        private State state = State.CLOSED;
+
+        private long openTime;
+
+        private int probes;
+
+        private int probeSuccesses;
+
+        Breaker(String url)
+        {
+            this.url = url;
+        }
+
+        synchronized boolean tryAcquire()
+        {
+            if (this.state == State.OPEN) {
+                if (System.currentTimeMillis() - this.openTime < coolDown) {
+                    return false;
+                }
+                this.state = State.HALF_OPEN;
+                this.probes = 0;
+                this.probeSuccesses = 0;
+            }
+            if (this.state == State.HALF_OPEN) {
+                if (this.probes >= maxProbes) {
+                    return false;
+                }
+                this.probes++;
+            }
+            return true;
+        }
+
+        synchronized void release()
+        {
+            if (this.state == State.HALF_OPEN && this.probes > 0) {
+                this.probes--;
+            }
+        }
+
+        synchronized void onSuccess()
+        {
+            if (this.state == State.HALF_OPEN) {
+                if (++this.probeSuccesses >= maxProbes) {
+                    close();
+                }
+            } else if (this.state == State.CLOSED) {
+                record(false);
+            }
+        }
+
+        synchronized void onFailure()
+        {
+            if (this.state == State.HALF_OPEN) {
+                open();
+            } else if (this.state == State.CLOSED) {
+                record(true);
+                if (this.count >= window && this.failures * 100 >= failureRate * this.count) {
+                    open();
+                }
+            }
+        }
+
+        synchronized State getState()
+        {
+            return this.state;
+        }
+
+        private void record(boolean failure)
+        {
+            if (this.count == window) {
+                if (this.outcomes[this.index]) {
+                    this.failures--;
+                }
+            } else {
+                this.count++;
+            }
+            this.outcomes[this.index] = failure;
+            if (failure) {
+                this.failures++;
+            }
+            this.index = (this.index + 1) % window;
+        }
+
+        private void open()
+        {
+            this.state = State.OPEN;
+            this.openTime = System.currentTimeMillis();
+            logger.warn("Too many failed requests to the YouTrack server [{}], suspending the calls for [{}] seconds",
+                this.url, TimeUnit.MILLISECONDS.toSeconds(coolDown));
+        }
+
+        private void close()
+        {
+            this.state = State.CLOSED;
+            this.count = 0;
+            this.index = 0;
+            this.failures = 0;
+            logger.info("The YouTrack server [{}] is available again", this.url);
+        }
+    }
+
+    @Inject
+    private YouTrackConfiguration configuration;
+
+    @Inject
+    private Logger logger;
+
+    private int failureRate;
+
+    private int window;
+
+    private long coolDown;
+
+    private int maxProbes;
+
+    private final Map<Pair<String, String>, Breaker> breakers = new ConcurrentHashMap<>();
+
+    @Override
+    public void initialize()
+    {
+        this.failureRate = this.configuration.getCircuitBreakerFailureRate();
+        this.window = Math.max(this.configuration.getCircuitBreakerWindow(), 1);
+        this.coolDown = TimeUnit.SECONDS.toMillis(this.configuration.getCircuitBreakerCoolDown());
+        this.maxProbes = Math.max(this.configuration.getCircuitBreakerProbes(), 1);
+    }
+
+    /**
+     * Must be called before sending a request to the passed server. When it returns {@code true}, the outcome of the
+     * request must then be reported with {@link #onSuccess(YouTrackServer)} or {@link #onFailure(YouTrackServer)}, or
+     * {@link #release(YouTrackServer)} must be called if the request is finally not sent.
+     *
+     * @param youTrackServer the YouTrack server to call
+     * @return true if the request can be sent, false if the calls to the server are currently suspended
+     */
+    public boolean tryAcquire(YouTrackServer youTrackServer)
+    {
+        return !isEnabled() || getBreaker(youTrackServer).tryAcquire();
+    }
+
+    /**
+     * Give back the permission obtained with {@link #tryAcquire(YouTrackServer)} when the request is finally not sent
+     * (e.g. because the request rate allowed for the server is exceeded), so that it doesn't take the place of a trial
+     * request.
+     *
+     * @param youTrackServer the YouTrack server which was not called
+     */
+    public void release(YouTrackServer youTrackServer)
+    {
+        if (isEnabled()) {
+            getBreaker(youTrackServer).release();
+        }
+    }
+
+    /**
+     * @param youTrackServer the YouTrack server which answered a request
+     */
+    public void onSuccess(YouTrackServer youTrackServer)
+    {
+        if (isEnabled()) {
+            getBreaker(youTrackServer).onSuccess();
+        }
+    }
+
+    /**
+     * @param youTrackServer the YouTrack server which failed to answer a request
+     */
+    public void onFailure(YouTrackServer youTrackServer)
+    {
+        if (isEnabled()) {
+            getBreaker(youTrackServer).onFailure();
+        }
+    }
+
+    /**
+     * @param e the error raised by a request
+     * @return true if the error means that the server is unavailable or overloaded (i.e. that it should be counted as
+     *         a failure), false if the server answered (e.g. with a "not found" error) or if the request failed locally
+     *         (e.g. invalid URL, malformed response, no pooled connection available)
+     */
+    public boolean isServerFailure(Exception e)
+    {
+        if (e instanceof YouTrackResponseException) {
+            int statusCode = ((YouTrackResponseException) e).getStatusCode();
+            return statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR
+                || statusCode == YouTrackResponseException.SC_TOO_MANY_REQUESTS;
+        }
+        // Timeouts count as well: a server which doesn't answer in time is overloaded.
+        return YouTrackRetryPolicy.isConnectionError(e) || e instanceof SocketTimeoutException
+            || (e instanceof ConnectTimeoutException && !(e instanceof ConnectionPoolTimeoutException));
+    }
+
+    /**
+     * @param youTrackServer a YouTrack server
+     * @return the current state of the circuit breaker of the passed server
+     */
+    public State getState(YouTrackServer youTrackServer)
+    {
+        if (!isEnabled()) {
+            return State.CLOSED;
+        }
+        Breaker breaker = this.breakers.get(createKey(youTrackServer));
+        return breaker != null ? breaker.getState() : State.CLOSED;
+    }
+
+    /**
+     * @param youTrackServer a YouTrack server
+     * @return true if the calls to the passed server are currently suspended
+     */
+    public boolean isOpen(YouTrackServer youTrackServer)
+    {
+        return getState(youTrackServer) == State.OPEN;
+    }
+
+    /**
+     * Forget the failures of the passed server, e.g. because its configuration changed.
+     *
+     * @param youTrackServer a YouTrack server
+     */
+    public void reset(YouTrackServer youTrackServer)
+    {
+        this.breakers.remove(createKey(youTrackServer));
+    }
+
+    private boolean isEnabled()
+    {
+        return this.failureRate > 0;
+    }
+
+    private Breaker getBreaker(YouTrackServer youTrackServer)
+    {
+        return this.breakers.computeIfAbsent(createKey(youTrackServer), key -> new Breaker(key.getLeft()));
+    }
+
+    private Pair<String, String> createKey(YouTrackServer youTrackServer)
+    {
+        // The availability doesn't depend on the password.
+        return new ImmutablePair<>(youTrackServer.getURL(), youTrackServer.getUsername());
+    }
+}
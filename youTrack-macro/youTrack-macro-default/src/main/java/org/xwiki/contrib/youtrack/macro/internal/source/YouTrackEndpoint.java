@@ -0,0 +1,137 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The data needed to send requests to a YouTrack server, computed once from its configuration instead of for each
+ * request: the target host, the authentication header and the REST API URLs.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackEndpoint
+{
+    private static final String ISSUES_PATH = "/api/issues";
+
+    private final String url;
+
+    private final HttpHost host;
+
+    private final String invalidURLMessage;
+
+    private final String authorization;
+
+    private final String issuesURL;
+
+    private final YouTrackIssueReader issueReader;
+
+    /**
+     * @param youTrackServer the YouTrack server to call
+     */
+    public YouTrackEndpoint(YouTrackServer youTrackServer)
+    {
+        this.url = youTrackServer.getURL();
+
+        HttpHost parsedHost = null;
+        String error = null;
+        try {
+            URL parsedURL = new URL(this.url);
+            parsedHost = new HttpHost(parsedURL.getHost(), parsedURL.getPort(), parsedURL.getProtocol());
+        } catch (MalformedURLException e) {
+            // Reported when a request is sent to the server.
+            error = e.getMessage();
+        }
+        this.host = parsedHost;
+        this.invalidURLMessage = error;
+
+        // Connect to YouTrack using preemptive basic authentication if username and password are defined, since
+        // YouTrack accepts both unauthenticated and authenticated requests.
+        if (StringUtils.isNotBlank(youTrackServer.getUsername())
+            && StringUtils.isNotBlank(youTrackServer.getPassword())) {
+            String credentials = youTrackServer.getUsername() + ':' + youTrackServer.getPassword();
+            this.authorization =
+                "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+        } else {
+            this.authorization = null;
+        }
+
+        this.issuesURL = this.url + ISSUES_PATH;
+        this.issueReader = new YouTrackIssueReader(this.url);
+    }
+
+    /**
+     * @return the URL of the YouTrack server, without trailing slash
+     */
+    public String getURL()
+    {
+        return this.url;
+    }
+
+    /**
+     * @return the host to send the requests to
+     * @throws MalformedURLException if the URL of the YouTrack server is not valid
+     */
+    public HttpHost getHost() throws MalformedURLException
+    {
+        if (this.host == null) {
+            throw new MalformedURLException(this.invalidURLMessage);
+        }
+        return this.host;
+    }
+
+    /**
+     * Adds the authentication header to the passed request, if the server has credentials.
+     *
+     * @param request the request to send to the server
+     */
+    public void authenticate(HttpRequest request)
+    {
+        if (this.authorization != null) {
+            request.setHeader(HttpHeaders.AUTHORIZATION, this.authorization);
+        }
+    }
+
+    /**
+     * @return the URL of the issues REST API (e.g. {@code http://youtrack.xwiki.org/api/issues})
+     */
+    public String getIssuesURL()
+    {
+        return this.issuesURL;
+    }
+
+    /**
+     * @return the reader of the issues returned by the server
+     */
+    public YouTrackIssueReader getIssueReader()
+    {
+        return this.issueReader;
+    }
+}
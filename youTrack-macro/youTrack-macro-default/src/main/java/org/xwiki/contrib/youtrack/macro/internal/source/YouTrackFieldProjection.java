@@ -0,0 +1,199 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.xwiki.contrib.youtrack.macro.YouTrackField;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The part of the YouTrack REST query string selecting which issue data is returned ({@code fields=...} and
+ * {@code customFields=...}), computed from the fields a macro actually displays so that YouTrack doesn't compute and
+ * send data that is never displayed.
+ * <p>
+ * Projections are immutable and cached per set of field ids.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public final class YouTrackFieldProjection
+{
+    /**
+     * Projection containing all the fields known by the macro, used when the displayed fields are not known.
+     */
+    public static final YouTrackFieldProjection ALL;
+
+    /**
+     * Maximum number of cached projections. Field lists are user-defined so we make sure the cache cannot grow forever.
+     */
+    private static final int MAX_CACHED_PROJECTIONS = 200;
+
+    private static final Map<Set<String>, YouTrackFieldProjection> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Fields which are always fetched: the key is needed to link and order issues, and the summary is cheap and used
+     * by several displayers as alternative text.
+     */
+    private static final String BASE_FIELDS = "idReadable,summary";
+
+    private static final String CUSTOM_FIELDS = "customFields(name,value(name,fullName,avatarUrl))";
+
+    private static final String SEPARATOR = ",";
+
+    /**
+     * Top level (i.e. non custom) issue fields, associated with the projection to use to fetch them.
+     */
+    private static final Map<String, String> ISSUE_FIELDS = new HashMap<>();
+
+    /**
+     * Fields that are not returned by YouTrack at all.
+     */
+    private static final Set<String> LOCAL_FIELDS = Collections.singleton(YouTrackField.NOTE);
+
+    /**
+     * Custom fields needed by field displayers in addition to the displayed field itself.
+     */
+    private static final Map<String, String> REQUIRED_CUSTOM_FIELDS = new HashMap<>();
+
+    static {
+        ISSUE_FIELDS.put(normalize(YouTrackField.KEY.getId()), "");
+        ISSUE_FIELDS.put(normalize(YouTrackField.SUMMARY.getId()), "");
+        ISSUE_FIELDS.put(normalize(YouTrackField.REPORTER.getId()), "reporter(fullName,avatarUrl)");
+        ISSUE_FIELDS.put(normalize(YouTrackField.CREATED.getId()), YouTrackField.CREATED.getId());
+        ISSUE_FIELDS.put(normalize(YouTrackField.UPDATED.getId()), YouTrackField.UPDATED.getId());
+        ISSUE_FIELDS.put(normalize(YouTrackField.RESOLVED.getId()), YouTrackField.RESOLVED.getId());
+
+        // The key displayer shows the state of the issue next to its key.
+        REQUIRED_CUSTOM_FIELDS.put(normalize(YouTrackField.KEY.getId()), YouTrackField.STATE.getId());
+
+        ALL = create(Arrays.asList(YouTrackField.KEY.getId(), YouTrackField.SUMMARY.getId(),
+            YouTrackField.REPORTER.getId(), YouTrackField.CREATED.getId(), YouTrackField.UPDATED.getId(),
+            YouTrackField.RESOLVED.getId(), YouTrackField.TYPE.getId(), YouTrackField.ASSIGNEE.getId(),
+            YouTrackField.PRIORITY.getId(), YouTrackField.STATE.getId(), YouTrackField.REVIEWER.getId(),
+            YouTrackField.FIXVERSION.getId(), YouTrackField.SPRINTS.getId()));
+    }
+
+    private final String queryString;
+
+    private YouTrackFieldProjection(String queryString)
+    {
+        this.queryString = queryString;
+    }
+
+    /**
+     * @param fields the fields to display
+     * @return the projection fetching the passed fields, or {@link #ALL} if no field is passed
+     */
+    public static YouTrackFieldProjection of(Collection<YouTrackField> fields)
+    {
+        if (fields == null || fields.isEmpty()) {
+            return ALL;
+        }
+
+        SortedSet<String> fieldIds = new TreeSet<>();
+        for (YouTrackField field : fields) {
+            fieldIds.add(field.getId());
+        }
+
+        YouTrackFieldProjection projection = CACHE.get(fieldIds);
+        if (projection == null) {
+            if (CACHE.size() >= MAX_CACHED_PROJECTIONS) {
+                CACHE.clear();
+            }
+            projection = CACHE.computeIfAbsent(fieldIds, YouTrackFieldProjection::create);
+        }
+        return projection;
+    }
+
+    /**
+     * @return the query string parameters (without leading {@code ?} or {@code &}) selecting the issue data to return
+     */
+    public String getQueryString()
+    {
+        return this.queryString;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.queryString;
+    }
+
+    private static YouTrackFieldProjection create(Collection<String> fieldIds)
+    {
+        Set<String> issueFields = new LinkedHashSet<>();
+        // Custom field names, indexed by their normalized form to avoid asking twice for the same field
+        Map<String, String> customFields = new LinkedHashMap<>();
+        for (String fieldId : fieldIds) {
+            String normalizedId = normalize(fieldId);
+            String issueField = ISSUE_FIELDS.get(normalizedId);
+            if (issueField != null) {
+                if (!issueField.isEmpty()) {
+                    issueFields.add(issueField);
+                }
+            } else if (!LOCAL_FIELDS.contains(normalizedId)) {
+                customFields.putIfAbsent(normalizedId, fieldId);
+            }
+            String requiredField = REQUIRED_CUSTOM_FIELDS.get(normalizedId);
+            if (requiredField != null) {
+                customFields.putIfAbsent(normalize(requiredField), requiredField);
+            }
+        }
+
+        StringBuilder builder = new StringBuilder("fields=").append(BASE_FIELDS);
+        for (String issueField : issueFields) {
+            builder.append(SEPARATOR).append(issueField);
+        }
+        if (!customFields.isEmpty()) {
+            builder.append(SEPARATOR).append(CUSTOM_FIELDS);
+            for (String customField : customFields.values()) {
+                builder.append("&customFields=").append(encode(customField));
+            }
+        }
+        return new YouTrackFieldProjection(builder.toString());
+    }
+
+    private static String normalize(String fieldId)
+    {
+        return fieldId.toLowerCase(Locale.ROOT);
+    }
+
+    private static String encode(String content)
+    {
+        try {
+            return URLEncoder.encode(content, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException("Missing UTF-8 encoding", e);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds one long-lived, pooled HTTP client per YouTrack server so that macros hitting the same YouTrack instance reuse
+ * warm connections instead of paying a new TCP/TLS handshake for each request.
+ * <p>
+ * Clients are keyed by server (URL, credentials and settings) and are closed when this component is disposed. They
+ * apply the timeouts and connection limits of their server. When a server is modified, its client is replaced right
+ * away but the old client is only closed once the requests using it are over (see
+ * {@link #acquireHttpClient(YouTrackServer)}).
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component(roles = {YouTrackHTTPClientRegistry.class})
+@Singleton
+public class YouTrackHTTPClientRegistry implements Disposable
+{
+    /**
+     * How long (in seconds) to keep an idle connection alive when the server doesn't send a keep-alive timeout.
+     */
+    private static final long KEEP_ALIVE = 30;
+
+    /**
+     * How long (in seconds) a connection can stay idle in the pool before the evictor closes it.
+     */
+    private static final long MAX_IDLE_TIME = 60;
+
+    /**
+     * Connections idle for more than this (in milliseconds) are re-validated before being leased again.
+     */
+    private static final int VALIDATE_AFTER_INACTIVITY = 2000;
+
+    private static final ConnectionKeepAliveStrategy KEEP_ALIVE_STRATEGY = (response, context) -> {
+        long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        return keepAlive > 0 ? keepAlive : TimeUnit.SECONDS.toMillis(KEEP_ALIVE);
+    };
+
+    /**
+     * A client shared by the requests sent to a server, closed once it's replaced and no longer used.
+     */
+    private static final class SharedClient
+    {
+        private final CloseableHttpClient client;
+
+        private int users;
+
+        private boolean replaced;
+
+        SharedClient(CloseableHttpClient client)
+        {
+            this.client = client;
+        }
+
+        /**
+         * @return true if the client can be used, false if it was replaced
+         */
+        synchronized boolean acquire()
+        {
+            if (this.replaced) {
+                return false;
+            }
+            this.users++;
+            return true;
+        }
+
+        /**
+         * @return true if the client must be closed
+         */
+        synchronized boolean release()
+        {
+            this.users--;
+            return this.replaced && this.users == 0;
+        }
+
+        /**
+         * @return true if the client must be closed
+         */
+        synchronized boolean replace()
+        {
+            this.replaced = true;
+            return this.users == 0;
+        }
+    }
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The clients to use for the next requests, indexed by server.
+     */
+    private final Map<YouTrackServer, SharedClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * All the clients not closed yet, including the replaced clients still used by some requests.
+     */
+    private final Map<CloseableHttpClient, SharedClient> openClients = new ConcurrentHashMap<>();
+
+    /**
+     * The request permits, indexed by server. They are removed when the server is modified: the requests still holding
+     * a permit release it on the old semaphore while the new requests use a semaphore with the new limit.
+     */
+    private final Map<YouTrackServer, Semaphore> requestPermits = new ConcurrentHashMap<>();
+
+    private final Map<YouTrackServer, YouTrackEndpoint> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * @param youTrackServer the YouTrack server to call
+     * @return the data needed to send requests to the passed server, computed on first use
+     */
+    public YouTrackEndpoint getEndpoint(YouTrackServer youTrackServer)
+    {
+        return this.endpoints.computeIfAbsent(youTrackServer, key -> new YouTrackEndpoint(youTrackServer));
+    }
+
+    /**
+     * @param youTrackServer the YouTrack server to connect to
+     * @return the shared HTTP client to use for this server (created on first use). The returned client must not be
+     *         closed by the caller but must be released with {@link #releaseHttpClient(CloseableHttpClient)} once the
+     *         request is over
+     */
+    public CloseableHttpClient acquireHttpClient(YouTrackServer youTrackServer)
+    {
+        while (true) {
+            SharedClient sharedClient = this.clients.computeIfAbsent(youTrackServer, key -> {
+                SharedClient newClient = new SharedClient(createHttpClient(youTrackServer));
+                this.openClients.put(newClient.client, newClient);
+                return newClient;
+            });
+            if (sharedClient.acquire()) {
+                return sharedClient.client;
+            }
+            // The client was replaced in the meantime: use the new one.
+        }
+    }
+
+    /**
+     * @param client a client returned by {@link #acquireHttpClient(YouTrackServer)}, whose request is over
+     */
+    public void releaseHttpClient(CloseableHttpClient client)
+    {
+        SharedClient sharedClient = this.openClients.get(client);
+        if (sharedClient != null && sharedClient.release()) {
+            close(sharedClient);
+        }
+    }
+
+    /**
+     * @param youTrackServer the YouTrack server to call
+     * @return the permits to acquire before sending a request to the passed server, or {@code null} if the number of
+     *         concurrent requests to this server is not limited (see {@link YouTrackServer#getMaxConcurrentRequests()})
+     */
+    public Semaphore getRequestPermits(YouTrackServer youTrackServer)
+    {
+        int maxConcurrentRequests = youTrackServer.getMaxConcurrentRequests();
+        if (maxConcurrentRequests <= 0) {
+            return null;
+        }
+        return this.requestPermits.computeIfAbsent(youTrackServer, key -> new Semaphore(maxConcurrentRequests, true));
+    }
+
+    /**
+     * Release the HTTP client (and its pooled connections) and the request permits used for the passed server, if any.
+     * The old client is closed once the requests using it are over.
+     *
+     * @param youTrackServer the YouTrack server for which to release the client
+     */
+    public void close(YouTrackServer youTrackServer)
+    {
+        this.endpoints.remove(youTrackServer);
+        this.requestPermits.remove(youTrackServer);
+        // Remove the client before replacing it, so that the next requests get a new client.
+        SharedClient sharedClient = this.clients.remove(youTrackServer);
+        if (sharedClient != null && sharedClient.replace()) {
+            close(sharedClient);
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        for (SharedClient sharedClient : this.openClients.values()) {
+            close(sharedClient);
+        }
+        this.clients.clear();
+        this.requestPermits.clear();
+        this.endpoints.clear();
+    }
+
+    protected CloseableHttpClient createHttpClient(YouTrackServer youTrackServer)
+    {
+        return createHttpClientBuilder(youTrackServer).build();
+    }
+
+    protected HttpClientBuilder createHttpClientBuilder(YouTrackServer youTrackServer)
+    {
+        // Allows system properties to override our default config (by calling useSystemProperties() first).
+        // Note: since we provide our own connection manager we also need to use the system socket factory explicitly
+        // so that the SSL system properties are still taken into account.
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+            .register("https", SSLConnectionSocketFactory.getSystemSocketFactory())
+            .build();
+        PoolingHttpClientConnectionManager connectionManager =
+            new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        // All requests go to the same host so the per route limit is the same as the total limit.
+        connectionManager.setMaxTotal(youTrackServer.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(youTrackServer.getMaxConnections());
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY);
+
+        // Make sure a slow or unreachable YouTrack server cannot hold the rendering threads indefinitely.
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(youTrackServer.getConnectTimeout())
+            .setSocketTimeout(youTrackServer.getReadTimeout())
+            .setConnectionRequestTimeout(youTrackServer.getConnectionRequestTimeout())
+            .build();
+
+        return HttpClientBuilder.create().useSystemProperties()
+            .setUserAgent("XWikiYouTrackMacro")
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            // Compressed responses are requested and decompressed by HTTPYouTrackFetcher.
+            .disableContentCompression()
+            .setKeepAliveStrategy(KEEP_ALIVE_STRATEGY)
+            // Starts a background thread closing expired and idle connections. It's stopped when the client is closed.
+            .evictExpiredConnections()
+            .evictIdleConnections(MAX_IDLE_TIME, TimeUnit.SECONDS);
+    }
+
+    private void close(SharedClient sharedClient)
+    {
+        this.openClients.remove(sharedClient.client);
+        try {
+            sharedClient.client.close();
+        } catch (IOException e) {
+            this.logger.warn("Failed to close YouTrack HTTP client. Root cause: [{}]", e.getMessage());
+        }
+    }
+}
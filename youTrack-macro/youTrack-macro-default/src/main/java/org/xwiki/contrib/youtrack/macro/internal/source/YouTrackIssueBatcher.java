@@ -0,0 +1,306 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+import org.xwiki.rendering.macro.MacroExecutionException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Collects the issue lookups made concurrently on the same YouTrack server (e.g. by many small list macros rendered at
+ * the same time) during {@link YouTrackConfiguration#getIssueBatchWindow()} milliseconds, or until
+ * {@link YouTrackConfiguration#getIssueBatchSize()} issues are collected, and fetches them with a single query.
+ * <p>
+ * The batcher is disabled when the window is {@code 0}. When a batch fails, all the threads waiting for its issues fail
+ * the same way, instead of each of them sending its own request again.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component(roles = {YouTrackIssueBatcher.class})
+@Singleton
+public class YouTrackIssueBatcher implements Initializable, Disposable
+{
+    /**
+     * Fetches a batch of issues.
+     */
+    @FunctionalInterface
+    public interface Loader
+    {
+        /**
+         * @param issueIds the ids of the issues to fetch
+         * @return the issues found, in any order
+         * @throws MacroExecutionException if the YouTrack issues cannot be retrieved
+         */
+        List<ItemObject> load(Collection<String> issueIds) throws MacroExecutionException;
+    }
+
+    private static final class Batch
+    {
+        private final List<Object> key;
+
+        private final Loader loader;
+
+        /**
+         * The issues to fetch, indexed by normalized id.
+         */
+        private final Map<String, CompletableFuture<ItemObject>> issues = new LinkedHashMap<>();
+
+        private Future<?> timer;
+
+        private boolean closed;
+
+        Batch(List<Object> key, Loader loader)
+        {
+            this.key = key;
+            this.loader = loader;
+        }
+    }
+
+    /**
+     * Maximum number of batches fetched at the same time.
+     */
+    private static final int BATCH_THREADS = 4;
+
+    /**
+     * Number of seconds after which an idle batch thread is stopped.
+     */
+    private static final long KEEP_ALIVE = 60;
+
+    @Inject
+    private YouTrackConfiguration configuration;
+
+    @Inject
+    private HTTPYouTrackFetcher fetcher;
+
+    @Inject
+    private Logger logger;
+
+    private long window;
+
+    private int maxBatchSize;
+
+    /**
+     * Closes the batches at the end of their window. The batches are fetched by {@link #loadExecutor}, so that a slow
+     * YouTrack server doesn't delay the other batches.
+     */
+    private ScheduledThreadPoolExecutor scheduler;
+
+    private ThreadPoolExecutor loadExecutor;
+
+    /**
+     * The batches being collected, indexed by server and projection. The whole server is part of the key since the
+     * batch is fetched with the credentials and the settings of the server of its first caller.
+     */
+    private final Map<List<Object>, Batch> batches = new HashMap<>();
+
+    @Override
+    public void initialize()
+    {
+        this.window = this.configuration.getIssueBatchWindow();
+        this.maxBatchSize = this.configuration.getIssueBatchSize();
+        if (this.window <= 0 || this.maxBatchSize <= 1) {
+            this.logger.debug("The YouTrack issue batcher is disabled");
+        } else {
+            this.scheduler = new ScheduledThreadPoolExecutor(1,
+                new BasicThreadFactory.Builder().namingPattern("YouTrack issue batch timer %d").daemon(true).build());
+            this.scheduler.setRemoveOnCancelPolicy(true);
+            this.loadExecutor = new ThreadPoolExecutor(BATCH_THREADS, BATCH_THREADS, KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new BasicThreadFactory.Builder().namingPattern("YouTrack issue batch %d").daemon(true).build());
+            this.loadExecutor.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    /**
+     * Fetch the passed issues along with the issues requested by other threads on the same server. The passed issues
+     * are fetched directly when the batcher is disabled or when there are already enough of them to make a batch.
+     *
+     * @param youTrackServer the YouTrack server to query
+     * @param issueIds the ids of the issues to get
+     * @param projection the issue data to get
+     * @param loader fetches a batch of issues from the passed server with the passed projection. It's shared by all the
+     *            threads contributing to the batch
+     * @return the issues found, in any order
+     * @throws MacroExecutionException if the YouTrack issues cannot be retrieved, e.g. when the batch containing them
+     *             failed
+     */
+    public List<ItemObject> get(YouTrackServer youTrackServer, Collection<String> issueIds,
+        YouTrackFieldProjection projection, Loader loader) throws MacroExecutionException
+    {
+        if (this.scheduler == null || issueIds.size() >= this.maxBatchSize) {
+            return loader.load(issueIds);
+        }
+
+        List<Object> key = Arrays.asList(youTrackServer, projection.getQueryString());
+        List<CompletableFuture<ItemObject>> futures = new ArrayList<>(issueIds.size());
+        try {
+            synchronized (this.batches) {
+                for (String issueId : issueIds) {
+                    futures.add(add(key, issueId, loader));
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            // The batcher is being disposed.
+            return loader.load(issueIds);
+        }
+
+        return waitFor(futures, getWaitTimeout(youTrackServer));
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.loadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param youTrackServer the YouTrack server to query
+     * @return the maximum time (in milliseconds) to wait for the issues of a batch: the batch window followed by the
+     *         time needed to send the batch request, retries included
+     */
+    private long getWaitTimeout(YouTrackServer youTrackServer)
+    {
+        return this.window + this.fetcher.getWaitTimeout(youTrackServer);
+    }
+
+    private CompletableFuture<ItemObject> add(List<Object> key, String issueId, Loader loader)
+    {
+        Batch batch = this.batches.get(key);
+        if (batch == null) {
+            Batch newBatch = new Batch(key, loader);
+            newBatch.timer = this.scheduler.schedule(() -> sendIfOpen(newBatch), this.window, TimeUnit.MILLISECONDS);
+            this.batches.put(key, newBatch);
+            batch = newBatch;
+        }
+
+        // YouTrack issue ids are case insensitive
+        CompletableFuture<ItemObject> future =
+            batch.issues.computeIfAbsent(issueId.toUpperCase(Locale.ROOT), id -> new CompletableFuture<>());
+
+        if (batch.issues.size() >= this.maxBatchSize) {
+            // Don't wait for the end of the window.
+            close(batch);
+            batch.timer.cancel(false);
+            submit(batch);
+        }
+
+        return future;
+    }
+
+    private void close(Batch batch)
+    {
+        batch.closed = true;
+        this.batches.remove(batch.key, batch);
+    }
+
+    private void sendIfOpen(Batch batch)
+    {
+        synchronized (this.batches) {
+            if (batch.closed) {
+                return;
+            }
+            close(batch);
+        }
+        submit(batch);
+    }
+
+    private void submit(Batch batch)
+    {
+        try {
+            this.loadExecutor.execute(() -> send(batch));
+        } catch (RejectedExecutionException e) {
+            // The batcher is being disposed.
+            batch.issues.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private void send(Batch batch)
+    {
+        try {
+            Map<String, ItemObject> issuesById = new HashMap<>();
+            for (ItemObject issue : batch.loader.load(batch.issues.keySet())) {
+                if (issue.getId() != null) {
+                    issuesById.put(issue.getId().toUpperCase(Locale.ROOT), issue);
+                }
+            }
+            batch.issues.forEach((id, future) -> future.complete(issuesById.get(id)));
+        } catch (Exception e) {
+            batch.issues.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private List<ItemObject> waitFor(List<CompletableFuture<ItemObject>> futures, long timeout)
+        throws MacroExecutionException
+    {
+        List<ItemObject> issues = new ArrayList<>(futures.size());
+        long deadline = System.currentTimeMillis() + timeout;
+        try {
+            for (CompletableFuture<ItemObject> future : futures) {
+                ItemObject issue =
+                    future.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+                if (issue != null) {
+                    issues.add(issue);
+                }
+            }
+        } catch (ExecutionException e) {
+            // Fail the same way as the batch.
+            if (e.getCause() instanceof MacroExecutionException) {
+                throw (MacroExecutionException) e.getCause();
+            }
+            throw new MacroExecutionException("Failed to fetch a batch of YouTrack issues", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MacroExecutionException("Interrupted while waiting for YouTrack issues", e);
+        } catch (TimeoutException e) {
+            throw new MacroExecutionException("Timed out waiting for YouTrack issues", e);
+        }
+        return issues;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.slf4j.Logger;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Locale;
+
+/**
+ * Keeps the fetched YouTrack issues for a configurable amount of time (see
+ * {@link YouTrackConfiguration#getIssueCacheLifespan()}) so that the same issue displayed on several pages is only
+ * fetched once.
+ * <p>
+ * Issues are cached per server URL, user name, issue id and {@link YouTrackFieldProjection}, since an issue fetched
+ * with a given projection doesn't hold the data required by another one. The cache is disabled when no
+ * {@link CacheManager} is available (e.g. when the macro is used with XWiki Rendering only). A server can also define a
+ * shorter lifespan for its own issues, see {@link YouTrackServer#getCacheLifespan()}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component(roles = {YouTrackIssueCache.class})
+@Singleton
+public class YouTrackIssueCache implements Initializable, Disposable
+{
+    private static final class CachedIssue
+    {
+        private final ItemObject issue;
+
+        private final long time;
+
+        CachedIssue(ItemObject issue)
+        {
+            this.issue = issue;
+            this.time = System.currentTimeMillis();
+        }
+    }
+
+    private static final String CACHE_ID = "youtrack.issues";
+
+    @Inject
+    private YouTrackConfiguration configuration;
+
+    @Inject
+    private ComponentManager componentManager;
+
+    @Inject
+    private Logger logger;
+
+    private Cache<CachedIssue> cache;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int lifespan = this.configuration.getIssueCacheLifespan();
+        if (lifespan <= 0) {
+            this.logger.debug("The YouTrack issue cache is disabled");
+        } else if (!this.componentManager.hasComponent(CacheManager.class)) {
+            this.logger.debug("No cache manager available, the YouTrack issue cache is disabled");
+        } else {
+            CacheConfiguration cacheConfiguration = new CacheConfiguration(CACHE_ID);
+            LRUEvictionConfiguration lru = new LRUEvictionConfiguration();
+            lru.setMaxEntries(this.configuration.getIssueCacheSize());
+            lru.setLifespan(lifespan);
+            cacheConfiguration.put(LRUEvictionConfiguration.CONFIGURATIONID, lru);
+            try {
+                CacheManager cacheManager = this.componentManager.getInstance(CacheManager.class);
+                this.cache = cacheManager.createNewCache(cacheConfiguration);
+            } catch (ComponentLookupException | CacheException e) {
+                throw new InitializationException("Failed to create the YouTrack issue cache", e);
+            }
+        }
+    }
+
+    /**
+     * @return true if issues are cached, false if the cache is disabled
+     */
+    public boolean isEnabled()
+    {
+        return this.cache != null;
+    }
+
+    /**
+     * @param youTrackServer the YouTrack server the issue comes from
+     * @param issueId the id of the issue
+     * @param projection the issue data needed
+     * @return the cached issue or {@code null} if it's not in cache (or expired)
+     */
+    public ItemObject get(YouTrackServer youTrackServer, String issueId, YouTrackFieldProjection projection)
+    {
+        if (this.cache == null || issueId == null) {
+            return null;
+        }
+        CachedIssue cachedIssue = this.cache.get(createKey(youTrackServer, issueId, projection));
+        if (cachedIssue == null || (youTrackServer.getCacheLifespan() >= 0
+            && System.currentTimeMillis() - cachedIssue.time > youTrackServer.getCacheLifespan() * 1000L)) {
+            return null;
+        }
+        return cachedIssue.issue;
+    }
+
+    /**
+     * @param youTrackServer the YouTrack server the issue comes from
+     * @param issue the issue to cache, as fetched from YouTrack (i.e. without any note)
+     * @param projection the projection used to fetch the issue
+     */
+    public void set(YouTrackServer youTrackServer, ItemObject issue, YouTrackFieldProjection projection)
+    {
+        if (this.cache != null && issue.getId() != null && youTrackServer.getCacheLifespan() != 0) {
+            this.cache.set(createKey(youTrackServer, issue.getId(), projection), new CachedIssue(issue));
+        }
+    }
+
+    /**
+     * Remove all the cached issues.
+     */
+    public void flush()
+    {
+        if (this.cache != null) {
+            this.cache.removeAll();
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (this.cache != null) {
+            this.cache.dispose();
+        }
+    }
+
+    private String createKey(YouTrackServer youTrackServer, String issueId, YouTrackFieldProjection projection)
+    {
+        // YouTrack issue ids are case insensitive
+        return YouTrackCacheKeyBuilder.forServer(youTrackServer).append(issueId.toUpperCase(Locale.ROOT))
+            .append(projection.getQueryString()).toString();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import com.google.gson.stream.JsonReader;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes YouTrack issues in a single pass, directly from the JSON stream returned by the YouTrack REST API, without
+ * building an intermediary JSON tree.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackIssueDecoder
+{
+    /**
+     * @param contentStream the stream containing a single YouTrack issue as JSON
+     * @param charset the charset of the content
+     * @param issueReader the reader of the issues returned by the YouTrack server the issue comes from
+     * @return the decoded issue
+     * @throws IOException in case of reading error or if the content is not a valid issue
+     */
+    ItemObject decodeIssue(InputStream contentStream, Charset charset, YouTrackIssueReader issueReader)
+        throws IOException
+    {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(contentStream, charset))) {
+            return issueReader.read(reader);
+        }
+    }
+
+    /**
+     * @param contentStream the stream containing a JSON array of YouTrack issues
+     * @param charset the charset of the content
+     * @param issueReader the reader of the issues returned by the YouTrack server the issues come from
+     * @return the decoded issues, in the order in which they were returned
+     * @throws IOException in case of reading error or if the content is not a valid list of issues
+     */
+    List<ItemObject> decodeIssues(InputStream contentStream, Charset charset, YouTrackIssueReader issueReader)
+        throws IOException
+    {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(contentStream, charset))) {
+            List<ItemObject> issues = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                issues.add(issueReader.read(reader));
+            }
+            reader.endArray();
+            return issues;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides, for each YouTrack server, the executor used to fetch the issues of a list one by one. Each executor runs
+ * at most {@link YouTrackConfiguration#getIssueFetchParallelism()} requests at the same time, the other ones being
+ * queued, so that a long list doesn't flood the server.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component(roles = {YouTrackIssueFetchExecutor.class})
+@Singleton
+public class YouTrackIssueFetchExecutor implements Disposable
+{
+    /**
+     * Number of seconds after which an idle fetch thread is stopped.
+     */
+    private static final long KEEP_ALIVE = 60;
+
+    @Inject
+    private YouTrackConfiguration configuration;
+
+    /**
+     * The executors, indexed by server URL.
+     */
+    private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+
+    private volatile boolean disposed;
+
+    /**
+     * @param youTrackServer the YouTrack server to fetch the issues from
+     * @return the executor to use to fetch the issues from the passed server, or {@code null} if they should be
+     *         fetched sequentially by the calling thread
+     */
+    public ExecutorService getExecutor(YouTrackServer youTrackServer)
+    {
+        int parallelism = this.configuration.getIssueFetchParallelism();
+        if (parallelism <= 1 || this.disposed) {
+            return null;
+        }
+        return this.executors.computeIfAbsent(youTrackServer.getURL(), url -> createExecutor(parallelism));
+    }
+
+    @Override
+    public void dispose()
+    {
+        this.disposed = true;
+        this.executors.values().forEach(ExecutorService::shutdownNow);
+        this.executors.clear();
+    }
+
+    private ExecutorService createExecutor(int parallelism)
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, KEEP_ALIVE, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new BasicThreadFactory.Builder()
+                .namingPattern("YouTrack issue fetch %d").daemon(true).build());
+        // Don't keep threads for the servers which are not used anymore.
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
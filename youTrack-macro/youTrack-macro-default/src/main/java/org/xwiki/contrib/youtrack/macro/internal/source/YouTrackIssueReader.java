@@ -0,0 +1,388 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.CustomFields;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ReporterObject;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ValueObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a YouTrack issue returned by the YouTrack REST API, either from a stream or from a JSON tree. The reader is
+ * stateless (apart from the server URL used to compute absolute URLs and the thread safe string pools) so a single
+ * instance is shared by all the threads reading issues from the same server.
+ * <p>
+ * The values repeated across issues (custom field names, the names of the states, types, priorities and users, and the
+ * avatar URLs) are deduplicated through {@link YouTrackStringPool}s, so that the cached issues share them. The summary,
+ * the id and the dates are specific to each issue and are not pooled.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackIssueReader
+{
+    private static final String SUMMARY = "summary";
+
+    private static final String ID = "idReadable";
+
+    private static final String UPDATED = "updated";
+
+    private static final String RESOLVED = "resolved";
+
+    private static final String CREATED = "created";
+
+    private static final String NAME = "name";
+
+    private static final String VALUE = "value";
+
+    private static final String FULL_NAME = "fullName";
+
+    private static final String AVATAR_URL = "avatarUrl";
+
+    private static final String ISSUE_PATH = "/issue/";
+
+    /**
+     * The maximum number of strings pooled per server, which is enough for the names and the users of most instances
+     * while bounding the memory used for the others.
+     */
+    private static final int MAX_POOLED_STRINGS = 10000;
+
+    private final String serverURL;
+
+    private final YouTrackStringPool strings = new YouTrackStringPool(MAX_POOLED_STRINGS);
+
+    private final YouTrackStringPool urls = new YouTrackStringPool(MAX_POOLED_STRINGS);
+
+    /**
+     * @param serverURL the URL of the YouTrack server the issues come from, which the relative URLs it returns are
+     *            resolved against
+     */
+    public YouTrackIssueReader(String serverURL)
+    {
+        this.serverURL = serverURL;
+    }
+
+    /**
+     * @return the URL of the YouTrack server the issues come from
+     */
+    public String getServerURL()
+    {
+        return this.serverURL;
+    }
+
+    /**
+     * @return the pool of the names decoded from the issues of the server
+     */
+    public YouTrackStringPool getStringPool()
+    {
+        return this.strings;
+    }
+
+    /**
+     * @return the pool of the (absolute) avatar URLs decoded from the issues of the server, indexed by their relative
+     *         URL
+     */
+    public YouTrackStringPool getURLPool()
+    {
+        return this.urls;
+    }
+
+    /**
+     * Reads an issue directly from a JSON stream, without building a JSON tree.
+     *
+     * @param reader the JSON stream, positioned at the beginning of a YouTrack issue object
+     * @return the decoded issue
+     * @throws IOException in case of reading error or if the content is not a valid issue
+     */
+    public ItemObject read(JsonReader reader) throws IOException
+    {
+        String summary = null;
+        String id = null;
+        String updated = null;
+        String resolved = null;
+        String created = null;
+        ReporterObject reporter = null;
+        List<CustomFields> customFields = Collections.emptyList();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case SUMMARY:
+                    summary = readString(reader);
+                    break;
+                case ID:
+                    id = readString(reader);
+                    break;
+                case UPDATED:
+                    updated = readString(reader);
+                    break;
+                case RESOLVED:
+                    resolved = readString(reader);
+                    break;
+                case CREATED:
+                    created = readString(reader);
+                    break;
+                case "reporter":
+                    reporter = readReporter(reader);
+                    break;
+                case "customFields":
+                    customFields = readCustomFields(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new ItemObject(summary, id, updated, resolved, created, customFields, reporter,
+            this.serverURL + ISSUE_PATH + id);
+    }
+
+    /**
+     * Reads an issue already parsed as a JSON tree. This walks the tree directly, which is much faster than writing it
+     * back to a stream to read it with {@link #read(JsonReader)}.
+     *
+     * @param issue the JSON object representing a YouTrack issue
+     * @return the decoded issue
+     * @throws IllegalStateException if a property doesn't have the expected type
+     */
+    public ItemObject fromJsonObject(JsonObject issue)
+    {
+        List<CustomFields> customFields = Collections.emptyList();
+        JsonElement customFieldsElement = issue.get("customFields");
+        if (customFieldsElement != null && !customFieldsElement.isJsonNull()) {
+            customFields = new ArrayList<>();
+            for (JsonElement element : customFieldsElement.getAsJsonArray()) {
+                JsonObject customField = element.getAsJsonObject();
+                String name = getPooledString(customField, NAME);
+                if (name != null) {
+                    JsonElement value = customField.get(VALUE);
+                    if (value != null && value.isJsonArray()) {
+                        List<ValueObject> values = new ArrayList<>();
+                        for (JsonElement item : value.getAsJsonArray()) {
+                            values.add(toValue(item));
+                        }
+                        customFields.add(new CustomFields(name, null, values));
+                    } else {
+                        customFields.add(new CustomFields(name, toValue(value), null));
+                    }
+                }
+            }
+        }
+
+        ReporterObject reporter = null;
+        JsonElement reporterElement = issue.get("reporter");
+        if (reporterElement != null && reporterElement.isJsonObject()) {
+            JsonObject reporterObject = reporterElement.getAsJsonObject();
+            reporter = new ReporterObject(getPooledString(reporterObject, FULL_NAME), getURL(reporterObject));
+        }
+
+        String id = getString(issue, ID);
+        return new ItemObject(getString(issue, SUMMARY), id, getString(issue, UPDATED), getString(issue, RESOLVED),
+            getString(issue, CREATED), customFields, reporter, this.serverURL + ISSUE_PATH + id);
+    }
+
+    private ValueObject toValue(JsonElement value)
+    {
+        if (value == null || value.isJsonNull() || value.isJsonArray()) {
+            return null;
+        } else if (!value.isJsonObject()) {
+            // Simple values (e.g. numbers for date or integer fields)
+            return new ValueObject(value.getAsString(), null, null);
+        }
+
+        JsonObject object = value.getAsJsonObject();
+        return new ValueObject(getPooledString(object, NAME), getPooledString(object, FULL_NAME), getURL(object));
+    }
+
+    private String getURL(JsonObject object)
+    {
+        return toURL(getString(object, AVATAR_URL));
+    }
+
+    private String toURL(String path)
+    {
+        // YouTrack returns URLs relative to the server URL
+        return this.urls.get(path, this::resolve);
+    }
+
+    private String resolve(String path)
+    {
+        return this.serverURL + path;
+    }
+
+    private String getPooledString(JsonObject object, String property)
+    {
+        return this.strings.get(getString(object, property));
+    }
+
+    private String getString(JsonObject object, String property)
+    {
+        JsonElement value = object.get(property);
+        return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
+
+    private List<CustomFields> readCustomFields(JsonReader reader) throws IOException
+    {
+        if (skipNull(reader)) {
+            return Collections.emptyList();
+        }
+
+        List<CustomFields> customFields = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String name = null;
+            ValueObject value = null;
+            List<ValueObject> values = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String property = reader.nextName();
+                if (NAME.equals(property)) {
+                    name = readPooledString(reader);
+                } else if (VALUE.equals(property)) {
+                    if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        values = new ArrayList<>();
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            values.add(readValue(reader));
+                        }
+                        reader.endArray();
+                    } else {
+                        value = readValue(reader);
+                    }
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (name != null) {
+                customFields.add(new CustomFields(name, value, values));
+            }
+        }
+        reader.endArray();
+        return customFields;
+    }
+
+    private ValueObject readValue(JsonReader reader) throws IOException
+    {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        } else if (token == JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        } else if (token != JsonToken.BEGIN_OBJECT) {
+            // Simple values (e.g. numbers for date or integer fields)
+            return new ValueObject(readString(reader), null, null);
+        }
+
+        String name = null;
+        String fullName = null;
+        String avatarUrl = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case NAME:
+                    name = readPooledString(reader);
+                    break;
+                case FULL_NAME:
+                    fullName = readPooledString(reader);
+                    break;
+                case AVATAR_URL:
+                    avatarUrl = readURL(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new ValueObject(name, fullName, avatarUrl);
+    }
+
+    private ReporterObject readReporter(JsonReader reader) throws IOException
+    {
+        if (skipNull(reader)) {
+            return null;
+        }
+
+        String fullName = null;
+        String avatarUrl = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case FULL_NAME:
+                    fullName = readPooledString(reader);
+                    break;
+                case AVATAR_URL:
+                    avatarUrl = readURL(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new ReporterObject(fullName, avatarUrl);
+    }
+
+    private String readURL(JsonReader reader) throws IOException
+    {
+        return toURL(readString(reader));
+    }
+
+    private String readPooledString(JsonReader reader) throws IOException
+    {
+        return this.strings.get(readString(reader));
+    }
+
+    private String readString(JsonReader reader) throws IOException
+    {
+        String result;
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            result = null;
+        } else if (token == JsonToken.BOOLEAN) {
+            result = String.valueOf(reader.nextBoolean());
+        } else {
+            // Note: nextString() also returns numbers as strings, keeping their exact JSON representation.
+            result = reader.nextString();
+        }
+        return result;
+    }
+
+    private boolean skipNull(JsonReader reader) throws IOException
+    {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the YouTrack issues fetched in advance for the current request (see
+ * {@code org.xwiki.contrib.youtrack.macro.internal.YouTrackPrefetchTransformation}), so that the macros of a page
+ * find their issues without querying YouTrack.
+ * <p>
+ * The issues are stored in the current {@link ExecutionContext}, and are thus forgotten at the end of the request.
+ * Nothing is stored when there's no {@link Execution} (e.g. when the macro is used with XWiki Rendering only).
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component(roles = {YouTrackPrefetchedIssues.class})
+@Singleton
+public class YouTrackPrefetchedIssues
+{
+    private static final String CONTEXT_PROPERTY = "youtrack.prefetchedIssues";
+
+    @Inject
+    private ComponentManager componentManager;
+
+    /**
+     * @return true if issues can be stored for the current request
+     */
+    public boolean isAvailable()
+    {
+        return getExecutionContext() != null;
+    }
+
+    /**
+     * @param youTrackServer the YouTrack server the issues come from
+     * @param issues the fetched issues
+     * @param projection the projection used to fetch the issues
+     */
+    public void put(YouTrackServer youTrackServer, Collection<ItemObject> issues, YouTrackFieldProjection projection)
+    {
+        Map<String, ItemObject> prefetchedIssues = getPrefetchedIssues(true);
+        if (prefetchedIssues != null) {
+            for (ItemObject issue : issues) {
+                if (issue.getId() != null) {
+                    prefetchedIssues.put(createKey(youTrackServer, issue.getId(), projection), issue);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param youTrackServer the YouTrack server the issue comes from
+     * @param issueId the id of the issue
+     * @param projection the issue data needed
+     * @return the issue fetched in advance for the current request, or {@code null} if it wasn't
+     */
+    public ItemObject get(YouTrackServer youTrackServer, String issueId, YouTrackFieldProjection projection)
+    {
+        Map<String, ItemObject> prefetchedIssues = getPrefetchedIssues(false);
+        if (prefetchedIssues == null || issueId == null) {
+            return null;
+        }
+        return prefetchedIssues.get(createKey(youTrackServer, issueId, projection));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ItemObject> getPrefetchedIssues(boolean create)
+    {
+        ExecutionContext context = getExecutionContext();
+        if (context == null) {
+            return null;
+        }
+
+        Map<String, ItemObject> prefetchedIssues = (Map<String, ItemObject>) context.getProperty(CONTEXT_PROPERTY);
+        if (prefetchedIssues == null && create) {
+            prefetchedIssues = new ConcurrentHashMap<>();
+            // Inherited so that macros rendered asynchronously from the current request can still use them.
+            context.newProperty(CONTEXT_PROPERTY).inherited().initial(prefetchedIssues).declare();
+        }
+        return prefetchedIssues;
+    }
+
+    private ExecutionContext getExecutionContext()
+    {
+        if (this.componentManager.hasComponent(Execution.class)) {
+            try {
+                return this.componentManager.<Execution>getInstance(Execution.class).getContext();
+            } catch (ComponentLookupException e) {
+                // Should never happen since we checked the component exists.
+            }
+        }
+        return null;
+    }
+
+    private String createKey(YouTrackServer youTrackServer, String issueId, YouTrackFieldProjection projection)
+    {
+        // YouTrack issue ids are case insensitive
+        return YouTrackCacheKeyBuilder.forServer(youTrackServer).append(issueId.toUpperCase(Locale.ROOT))
+            .append(projection.getQueryString()).toString();
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+import org.xwiki.rendering.macro.MacroExecutionException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the results of jql queries, serving them as is during {@link YouTrackConfiguration#getQueryCacheLifespan()}
+ * seconds. Once expired, a result is still served during {@link YouTrackConfiguration#getQueryCacheMaxStale()} seconds
+ * while a single background refresh per query is running, so that pages never wait for a query that has already been
+ * executed recently.
+ * <p>
+ * The cache is disabled when the lifespan is {@code 0} or when no {@link CacheManager} is available (e.g. when the
+ * macro is used with XWiki Rendering only). A server can also define a shorter lifespan for its own queries, see
+ * {@link YouTrackServer#getCacheLifespan()}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component(roles = {YouTrackQueryCache.class})
+@Singleton
+public class YouTrackQueryCache implements Initializable, Disposable
+{
+    /**
+     * Fetches the result of a query, when it's not cached or when it needs to be refreshed.
+     */
+    @FunctionalInterface
+    public interface Loader
+    {
+        /**
+         * @return the issues matching the query
+         * @throws MacroExecutionException if the YouTrack issues cannot be retrieved
+         */
+        List<ItemObject> load() throws MacroExecutionException;
+    }
+
+    private static final class CachedResult
+    {
+        private final List<ItemObject> issues;
+
+        private final long time;
+
+        CachedResult(List<ItemObject> issues)
+        {
+            this.issues = Collections.unmodifiableList(issues);
+            this.time = System.currentTimeMillis();
+        }
+    }
+
+    private static final String CACHE_ID = "youtrack.queries";
+
+    /**
+     * Maximum number of queries refreshed at the same time, other refreshes are queued.
+     */
+    private static final int REFRESH_THREADS = 2;
+
+    /**
+     * Maximum number of queued refreshes, above that expired results are refreshed by the next render instead.
+     */
+    private static final int MAX_QUEUED_REFRESHES = 100;
+
+    @Inject
+    private YouTrackConfiguration configuration;
+
+    @Inject
+    private ComponentManager componentManager;
+
+    @Inject
+    private YouTrackCircuitBreaker circuitBreaker;
+
+    @Inject
+    private Logger logger;
+
+    private Cache<CachedResult> cache;
+
+    private long lifespan;
+
+    private ExecutorService refreshExecutor;
+
+    /**
+     * The keys of the queries currently being refreshed, to make sure a given query is refreshed only once at a time.
+     */
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int freshLifespan = this.configuration.getQueryCacheLifespan();
+        if (freshLifespan <= 0) {
+            this.logger.debug("The YouTrack query cache is disabled");
+        } else if (!this.componentManager.hasComponent(CacheManager.class)) {
+            this.logger.debug("No cache manager available, the YouTrack query cache is disabled");
+        } else {
+            this.lifespan = TimeUnit.SECONDS.toMillis(freshLifespan);
+
+            CacheConfiguration cacheConfiguration = new CacheConfiguration(CACHE_ID);
+            LRUEvictionConfiguration lru = new LRUEvictionConfiguration();
+            lru.setMaxEntries(this.configuration.getQueryCacheSize());
+            // Keep the results long enough to be able to serve them while they are refreshed.
+            lru.setLifespan(freshLifespan + Math.max(this.configuration.getQueryCacheMaxStale(), 0));
+            cacheConfiguration.put(LRUEvictionConfiguration.CONFIGURATIONID, lru);
+            try {
+                CacheManager cacheManager = this.componentManager.getInstance(CacheManager.class);
+                this.cache = cacheManager.createNewCache(cacheConfiguration);
+            } catch (ComponentLookupException | CacheException e) {
+                throw new InitializationException("Failed to create the YouTrack query cache", e);
+            }
+
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 60L,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_QUEUED_REFRESHES),
+                new BasicThreadFactory.Builder().namingPattern("YouTrack query refresh %d").daemon(true).build());
+            executor.allowCoreThreadTimeOut(true);
+            this.refreshExecutor = executor;
+        }
+    }
+
+    /**
+     * @param youTrackServer the YouTrack server to query
+     * @param query the jql query
+     * @param maxCount the max number of issues to get
+     * @param projection the issue data to get
+     * @param loader executes the query when it's not cached or needs to be refreshed
+     * @return the (possibly stale) issues matching the query
+     * @throws MacroExecutionException if the query is not cached and the YouTrack issues cannot be retrieved
+     */
+    public List<ItemObject> get(YouTrackServer youTrackServer, String query, int maxCount,
+        YouTrackFieldProjection projection, Loader loader) throws MacroExecutionException
+    {
+        if (this.cache == null || youTrackServer.getCacheLifespan() == 0) {
+            return loader.load();
+        }
+
+        String key = YouTrackCacheKeyBuilder.forServer(youTrackServer).append(canonicalize(query)).append(maxCount)
+            .append(projection.getQueryString()).toString();
+        CachedResult result = this.cache.get(key);
+        if (result == null) {
+            result = new CachedResult(loader.load());
+            this.cache.set(key, result);
+        } else if (System.currentTimeMillis() - result.time > getLifespan(youTrackServer)
+            && !this.circuitBreaker.isOpen(youTrackServer)) {
+            // Keep serving the stale result without trying to refresh it while the server is unavailable.
+            refresh(key, loader);
+        }
+        return result.issues;
+    }
+
+    /**
+     * Remove all the cached query results.
+     */
+    public void flush()
+    {
+        if (this.cache != null) {
+            this.cache.removeAll();
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (this.refreshExecutor != null) {
+            this.refreshExecutor.shutdownNow();
+        }
+        if (this.cache != null) {
+            this.cache.dispose();
+        }
+    }
+
+    private void refresh(String key, Loader loader)
+    {
+        if (this.refreshing.add(key)) {
+            try {
+                this.refreshExecutor.execute(() -> {
+                    try {
+                        this.cache.set(key, new CachedResult(loader.load()));
+                    } catch (Exception e) {
+                        // Keep serving the stale result until it's evicted.
+                        this.logger.warn("Failed to refresh YouTrack query result. Root cause: [{}]",
+                            e.getMessage());
+                    } finally {
+                        this.refreshing.remove(key);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                this.refreshing.remove(key);
+                this.logger.debug("Too many YouTrack query refreshes pending, skipping refresh");
+            }
+        }
+    }
+
+    private long getLifespan(YouTrackServer youTrackServer)
+    {
+        if (youTrackServer.getCacheLifespan() > 0) {
+            return Math.min(TimeUnit.SECONDS.toMillis(youTrackServer.getCacheLifespan()), this.lifespan);
+        }
+        return this.lifespan;
+    }
+
+    /**
+     * @param query the jql query
+     * @return the query with its white spaces normalized so that the same query written differently shares the same
+     *         cache entry. The white spaces inside quoted values ({@code "a  b"} or {@code {a  b}}) are kept since they
+     *         change the meaning of the query
+     */
+    private String canonicalize(String query)
+    {
+        StringBuilder result = new StringBuilder(query.length());
+        char closingQuote = 0;
+        boolean pendingSpace = false;
+        for (char c : query.trim().toCharArray()) {
+            if (closingQuote != 0) {
+                if (c == closingQuote) {
+                    closingQuote = 0;
+                }
+            } else if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                continue;
+            } else if (c == '"') {
+                closingQuote = '"';
+            } else if (c == '{') {
+                closingQuote = '}';
+            }
+            if (pendingSpace) {
+                result.append(' ');
+                pendingSpace = false;
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes sure the wiki never sends more requests to a YouTrack server than allowed by
+ * {@link YouTrackServer#getRequestRate()}, using one token bucket per server: the bucket holds up to
+ * {@link YouTrackServer#getRequestBurst()} tokens, refilled at the request rate, and each request takes one token.
+ * Requests arriving when the bucket is empty wait for their token, unless they would have to wait more than
+ * {@link YouTrackServer#getConnectionRequestTimeout()} (or {@value #DEFAULT_MAX_WAIT} milliseconds when it's not
+ * defined), in which case they are rejected.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component(roles = {YouTrackRateLimiter.class})
+@Singleton
+public class YouTrackRateLimiter
+{
+    /**
+     * How long (in milliseconds) a request can wait for its token when the connection request timeout of its server is
+     * not defined.
+     */
+    private static final long DEFAULT_MAX_WAIT = 10000;
+
+    private static final class TokenBucket
+    {
+        private final int rate;
+
+        private final int burst;
+
+        private final double tokensPerNano;
+
+        private final double capacity;
+
+        private double tokens;
+
+        private long lastRefill = System.nanoTime();
+
+        TokenBucket(int rate, int burst)
+        {
+            this.rate = rate;
+            this.burst = burst;
+            this.tokensPerNano = rate / (double) TimeUnit.SECONDS.toNanos(1);
+            this.capacity = burst;
+            this.tokens = burst;
+        }
+
+        boolean hasSettings(int rate, int burst)
+        {
+            return this.rate == rate && this.burst == burst;
+        }
+
+        /**
+         * @param maxWait the maximum time (in nanoseconds) the caller accepts to wait for its token
+         * @return the time (in nanoseconds) to wait before using the reserved token, or {@code -1} if no token could be
+         *         reserved
+         */
+        synchronized long reserve(long maxWait)
+        {
+            long now = System.nanoTime();
+            this.tokens = Math.min(this.capacity, this.tokens + (now - this.lastRefill) * this.tokensPerNano);
+            this.lastRefill = now;
+
+            long wait = this.tokens >= 1 ? 0 : (long) Math.ceil((1 - this.tokens) / this.tokensPerNano);
+            if (wait > maxWait) {
+                return -1;
+            }
+            // The bucket can go below zero: the next callers then wait for the tokens reserved before them.
+            this.tokens--;
+            return wait;
+        }
+    }
+
+    @Inject
+    private YouTrackStatistics statistics;
+
+    /**
+     * The token buckets, indexed by server URL. A bucket is replaced when the rate or burst of its server is modified.
+     */
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Wait until a request can be sent to the passed server.
+     *
+     * @param youTrackServer the YouTrack server to call
+     * @return true if the request can be sent, false if it would have to wait too long
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public boolean acquire(YouTrackServer youTrackServer) throws InterruptedException
+    {
+        int rate = youTrackServer.getRequestRate();
+        if (rate <= 0) {
+            return true;
+        }
+
+        int burst = youTrackServer.getRequestBurst() > 0 ? youTrackServer.getRequestBurst() : rate;
+        TokenBucket bucket = this.buckets.compute(youTrackServer.getURL(), (key, current) ->
+            current != null && current.hasSettings(rate, burst) ? current : new TokenBucket(rate, burst));
+
+        long wait = bucket.reserve(TimeUnit.MILLISECONDS.toNanos(getMaxWait(youTrackServer)));
+        if (wait < 0) {
+            this.statistics.increment(youTrackServer, YouTrackStatistics.RATE_LIMITED);
+            return false;
+        }
+        if (wait > 0) {
+            this.statistics.increment(youTrackServer, YouTrackStatistics.DELAYED);
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return true;
+    }
+
+    /**
+     * @param youTrackServer the YouTrack server to call
+     * @return the maximum time (in milliseconds) a request can wait for its token
+     */
+    protected long getMaxWait(YouTrackServer youTrackServer)
+    {
+        return youTrackServer.getConnectionRequestTimeout() > 0 ? youTrackServer.getConnectionRequestTimeout()
+            : DEFAULT_MAX_WAIT;
+    }
+}
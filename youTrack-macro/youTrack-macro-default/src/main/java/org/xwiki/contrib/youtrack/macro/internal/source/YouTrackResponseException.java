@@ -0,0 +1,81 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+/**
+ * Raised when a YouTrack server answers a request with an error status.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackResponseException extends Exception
+{
+    /**
+     * The {@code 429 Too Many Requests} status code, not defined by {@link org.apache.http.HttpStatus}.
+     */
+    public static final int SC_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Class version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    private final String retryAfter;
+
+    /**
+     * @param message the error message
+     * @param statusCode see {@link #getStatusCode()}
+     */
+    public YouTrackResponseException(String message, int statusCode)
+    {
+        this(message, statusCode, null);
+    }
+
+    /**
+     * @param message the error message
+     * @param statusCode see {@link #getStatusCode()}
+     * @param retryAfter see {@link #getRetryAfter()}
+     */
+    public YouTrackResponseException(String message, int statusCode, String retryAfter)
+    {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return the HTTP status code of the response
+     */
+    public int getStatusCode()
+    {
+        return this.statusCode;
+    }
+
+    /**
+     * @return the value of the {@code Retry-After} header of the response (a number of seconds or an HTTP date), or
+     *         {@code null} if the server didn't send it
+     */
+    public String getRetryAfter()
+    {
+        return this.retryAfter;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.http.HttpStatus;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.utils.DateUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides if and when a failed YouTrack request should be sent again. Only transient errors are retried (connection
+ * errors, {@code 429 Too Many Requests} and {@code 503 Service Unavailable} responses), after an exponential backoff
+ * with full jitter or after the delay requested by the server with a {@code Retry-After} header, and as long as
+ * {@link YouTrackConfiguration#getRetryDeadline()} is not reached.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component(roles = {YouTrackRetryPolicy.class})
+@Singleton
+public class YouTrackRetryPolicy
+{
+    /**
+     * The value returned by {@link #getRetryDelay(YouTrackServer, Exception, int, long)} when the request must not be
+     * retried.
+     */
+    public static final long NO_RETRY = -1;
+
+    /**
+     * Maximum exponent of the backoff, to avoid overflows.
+     */
+    private static final int MAX_BACKOFF_EXPONENT = 16;
+
+    @Inject
+    private YouTrackConfiguration configuration;
+
+    @Inject
+    private YouTrackStatistics statistics;
+
+    /**
+     * @return the time (in milliseconds since the epoch) after which a request started now should not be retried
+     */
+    public long getDeadline()
+    {
+        return System.currentTimeMillis() + this.configuration.getRetryDeadline();
+    }
+
+    /**
+     * @return the maximum time (in milliseconds) after the first attempt of a request during which it can be sent
+     *         again
+     */
+    public long getRetryDuration()
+    {
+        return this.configuration.getRetryMaxAttempts() > 1 ? Math.max(this.configuration.getRetryDeadline(), 0) : 0;
+    }
+
+    /**
+     * @param youTrackServer the YouTrack server called
+     * @param error the error raised by the last attempt
+     * @param attempt the number of attempts made so far
+     * @param deadline see {@link #getDeadline()}
+     * @return the number of milliseconds to wait before sending the request again, or {@link #NO_RETRY} if the
+     *         request must fail with the passed error
+     */
+    public long getRetryDelay(YouTrackServer youTrackServer, Exception error, int attempt, long deadline)
+    {
+        if (attempt >= this.configuration.getRetryMaxAttempts() || !isTransient(error)) {
+            return NO_RETRY;
+        }
+
+        long delay = getRequestedDelay(error);
+        if (delay >= 0) {
+            this.statistics.increment(youTrackServer, YouTrackStatistics.RETRY_AFTER);
+        } else {
+            // Full jitter, to avoid having all the waiting requests retried at the same time.
+            long backoff = (long) this.configuration.getRetryDelay() << Math.min(attempt - 1, MAX_BACKOFF_EXPONENT);
+            delay = ThreadLocalRandom.current().nextLong(backoff + 1);
+        }
+
+        if (System.currentTimeMillis() + delay > deadline) {
+            return NO_RETRY;
+        }
+        return delay;
+    }
+
+    private boolean isTransient(Exception error)
+    {
+        if (error instanceof YouTrackResponseException) {
+            int statusCode = ((YouTrackResponseException) error).getStatusCode();
+            return statusCode == YouTrackResponseException.SC_TOO_MANY_REQUESTS
+                || statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE;
+        }
+        // Don't retry the requests which timed out (the server is already slow) or which failed locally.
+        return isConnectionError(error);
+    }
+
+    /**
+     * @param error the error raised by a request
+     * @return true if the request failed because the server could not be reached or dropped the connection, false if
+     *         it failed locally (e.g. invalid URL, no pooled connection available) or because of the response content
+     */
+    static boolean isConnectionError(Exception error)
+    {
+        return error instanceof ConnectException || error instanceof NoHttpResponseException
+            || error instanceof SocketException || error instanceof UnknownHostException;
+    }
+
+    /**
+     * @param error the error raised by the last attempt
+     * @return the delay (in milliseconds) requested by the server, or {@code -1} if it didn't request any
+     */
+    private long getRequestedDelay(Exception error)
+    {
+        if (error instanceof YouTrackResponseException) {
+            String retryAfter = StringUtils.trim(((YouTrackResponseException) error).getRetryAfter());
+            if (StringUtils.isNotEmpty(retryAfter)) {
+                if (NumberUtils.isDigits(retryAfter)) {
+                    return TimeUnit.SECONDS.toMillis(NumberUtils.toLong(retryAfter));
+                }
+                Date date = DateUtils.parseDate(retryAfter);
+                if (date != null) {
+                    return Math.max(date.getTime() - System.currentTimeMillis(), 0);
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.config.YouTrackServersChangedEvent;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import java.util.Collection;
+
+/**
+ * Releases the resources tied to the YouTrack servers which were modified or removed from the configuration: their
+ * pooled HTTP clients are replaced (the new ones using the new settings, the old ones being closed once their requests
+ * are over), their failures are forgotten and the cached issues and query results are flushed. The macros rendered
+ * asynchronously are flushed by the {@code YouTrackRenderingCacheListener} of the platform module.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component
+@Named(YouTrackServerChangeListener.NAME)
+@Singleton
+public class YouTrackServerChangeListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "YouTrackServerChangeListener";
+
+    @Inject
+    private Provider<YouTrackHTTPClientRegistry> clientRegistryProvider;
+
+    @Inject
+    private Provider<YouTrackCircuitBreaker> circuitBreakerProvider;
+
+    @Inject
+    private Provider<YouTrackIssueCache> issueCacheProvider;
+
+    @Inject
+    private Provider<YouTrackQueryCache> queryCacheProvider;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * Default constructor.
+     */
+    public YouTrackServerChangeListener()
+    {
+        super(NAME, new YouTrackServersChangedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        @SuppressWarnings("unchecked")
+        Collection<YouTrackServer> servers = (Collection<YouTrackServer>) data;
+        for (YouTrackServer server : servers) {
+            this.logger.debug("Releasing the resources of the YouTrack server [{}] of wiki [{}]", server.getURL(),
+                source);
+            this.clientRegistryProvider.get().close(server);
+            this.circuitBreakerProvider.get().reset(server);
+        }
+
+        // The caches are shared by all the servers and can't be flushed for a single server.
+        this.issueCacheProvider.get().flush();
+        this.queryCacheProvider.get().flush();
+    }
+}
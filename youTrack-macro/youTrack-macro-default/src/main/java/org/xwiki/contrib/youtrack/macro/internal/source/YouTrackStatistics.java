@@ -0,0 +1,144 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what happens when calling each YouTrack server (requests sent, retries, etc.) so that administrators can
+ * tune the configuration.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component(roles = {YouTrackStatistics.class})
+@Singleton
+public class YouTrackStatistics
+{
+    /**
+     * The number of requests sent, including the retries.
+     */
+    public static final String REQUESTS = "requests";
+
+    /**
+     * The number of requests which failed with an error (after all their retries).
+     */
+    public static final String FAILURES = "failures";
+
+    /**
+     * The number of retries.
+     */
+    public static final String RETRIES = "retries";
+
+    /**
+     * The number of retries delayed as requested by the server with a {@code Retry-After} header.
+     */
+    public static final String RETRY_AFTER = "retryAfter";
+
+    /**
+     * The number of requests delayed to respect the request rate of the server.
+     */
+    public static final String DELAYED = "delayed";
+
+    /**
+     * The number of requests rejected because the request rate of the server was exceeded for too long.
+     */
+    public static final String RATE_LIMITED = "rateLimited";
+
+    /**
+     * The number of bytes received, possibly compressed.
+     */
+    public static final String BYTES_RECEIVED = "bytesReceived";
+
+    /**
+     * The number of bytes received once decompressed, the difference with {@link #BYTES_RECEIVED} being the bandwidth
+     * saved by the compression.
+     */
+    public static final String BYTES_DECOMPRESSED = "bytesDecompressed";
+
+    /**
+     * The number of distinct strings (names and avatar URLs) pooled while decoding the issues of the server. This is
+     * not a counter: it's reported with the statistics of the server but it's computed from its
+     * {@link YouTrackStringPool}s.
+     */
+    public static final String POOLED_STRINGS = "pooledStrings";
+
+    /**
+     * The number of decoded strings replaced by a pooled instance, i.e. the number of strings not duplicated in the
+     * caches. Like {@link #POOLED_STRINGS}, it's computed from the {@link YouTrackStringPool}s of the server.
+     */
+    public static final String POOLED_STRING_HITS = "pooledStringHits";
+
+    /**
+     * The counters, indexed by server URL and counter name.
+     */
+    private final Map<String, Map<String, LongAdder>> counters = new ConcurrentHashMap<>();
+
+    /**
+     * @param youTrackServer the YouTrack server concerned
+     * @param counter the name of the counter to increment
+     */
+    public void increment(YouTrackServer youTrackServer, String counter)
+    {
+        add(youTrackServer, counter, 1);
+    }
+
+    /**
+     * @param youTrackServer the YouTrack server concerned
+     * @param counter the name of the counter to update
+     * @param value the value to add to the counter
+     */
+    public void add(YouTrackServer youTrackServer, String counter, long value)
+    {
+        this.counters.computeIfAbsent(youTrackServer.getURL(), url -> new ConcurrentHashMap<>())
+            .computeIfAbsent(counter, name -> new LongAdder()).add(value);
+    }
+
+    /**
+     * @param youTrackServer a YouTrack server
+     * @return the current value of the counters of the passed server, indexed by counter name
+     */
+    public Map<String, Long> get(YouTrackServer youTrackServer)
+    {
+        Map<String, LongAdder> serverCounters = this.counters.get(youTrackServer.getURL());
+        if (serverCounters == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Long> values = new TreeMap<>();
+        serverCounters.forEach((name, value) -> values.put(name, value.sum()));
+        return values;
+    }
+
+    /**
+     * Reset all the counters.
+     */
+    public void reset()
+    {
+        this.counters.clear();
+    }
+}
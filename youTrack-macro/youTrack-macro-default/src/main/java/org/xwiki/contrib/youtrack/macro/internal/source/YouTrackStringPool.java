@@ -0,0 +1,110 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * A bounded pool of the strings decoded from the issues of a YouTrack server, so that the values repeated in most
+ * issues (field names, state and type names, user names, avatar URLs, etc.) share the same instance instead of being
+ * held once per issue by the caches.
+ * <p>
+ * Once the pool is full, new strings are not pooled anymore, but the pooled ones are still shared.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackStringPool
+{
+    /**
+     * Longer strings are very unlikely to be repeated and are thus not pooled.
+     */
+    private static final int MAX_LENGTH = 256;
+
+    private final int maxSize;
+
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param maxSize the maximum number of strings to pool
+     */
+    public YouTrackStringPool(int maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param value a decoded string
+     * @return the pooled instance equal to the passed string, or the passed string itself
+     */
+    public String get(String value)
+    {
+        return get(value, UnaryOperator.identity());
+    }
+
+    /**
+     * @param key the decoded string the value is computed from
+     * @param factory computes the value from the key, when it's not pooled yet
+     * @return the pooled value associated to the passed key, or the value computed from it
+     */
+    public String get(String key, UnaryOperator<String> factory)
+    {
+        if (key == null) {
+            return null;
+        } else if (key.length() > MAX_LENGTH) {
+            return factory.apply(key);
+        }
+
+        String value = this.strings.get(key);
+        if (value != null) {
+            this.hits.increment();
+        } else {
+            value = factory.apply(key);
+            if (this.strings.size() < this.maxSize) {
+                String previous = this.strings.putIfAbsent(key, value);
+                if (previous != null) {
+                    value = previous;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return the number of times a pooled string was returned instead of a new one
+     */
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return the number of pooled strings
+     */
+    public int size()
+    {
+        return this.strings.size();
+    }
+}
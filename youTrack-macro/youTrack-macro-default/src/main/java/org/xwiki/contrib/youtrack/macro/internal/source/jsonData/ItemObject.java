@@ -24,13 +24,23 @@ import com.google.gson.annotations.SerializedName;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Locale;
+import java.util.Map;
 
 @Data
 public class ItemObject {
 
+    /**
+     * Value returned by the time getters (e.g. {@link #getCreatedTime()}) when the issue doesn't have the date or when
+     * it wasn't fetched.
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+
     @SerializedName("summary")
     private String summary;
 
@@ -54,6 +64,28 @@ public class ItemObject {
 
     private String link;
 
+    private String note;
+
+    /**
+     * The reason why the issue couldn't be retrieved, for the placeholders created with {@link #error}.
+     */
+    private transient String error;
+
+    /**
+     * The custom fields indexed by their lower cased name, to avoid going through all the custom fields each time a
+     * field is displayed. Built by the constructors and by {@link #setCustomFieldsList(List)}.
+     */
+    private transient Map<String, CustomFields> customFieldsByName;
+
+    /**
+     * The dates, decoded once from the epoch milliseconds sent by YouTrack.
+     */
+    private transient long updatedTime;
+
+    private transient long resolvedTime;
+
+    private transient long createdTime;
+
     public ItemObject(String summary, String id, String updated, String resolved,
                       String created, List<CustomFields> customFieldsList, ReporterObject reporter,
                       String link) {
@@ -62,9 +94,33 @@ public class ItemObject {
         this.updated = updated;
         this.resolved = resolved;
         this.created = created;
+        this.updatedTime = parseTime(updated);
+        this.resolvedTime = parseTime(resolved);
+        this.createdTime = parseTime(created);
         this.customFieldsList = customFieldsList;
         this.reporter = reporter;
         this.link = link;
+        this.customFieldsByName = indexCustomFields(customFieldsList);
+    }
+
+    /**
+     * Copies the passed issue, reusing its decoded dates and its custom field index.
+     */
+    private ItemObject(ItemObject issue) {
+        this.summary = issue.summary;
+        this.id = issue.id;
+        this.updated = issue.updated;
+        this.resolved = issue.resolved;
+        this.created = issue.created;
+        this.updatedTime = issue.updatedTime;
+        this.resolvedTime = issue.resolvedTime;
+        this.createdTime = issue.createdTime;
+        this.customFieldsList = issue.customFieldsList;
+        this.reporter = issue.reporter;
+        this.link = issue.link;
+        this.customFieldsByName = issue.customFieldsByName;
+        this.note = issue.note;
+        this.error = issue.error;
     }
 
     public String getSummary() {
@@ -87,6 +143,50 @@ public class ItemObject {
         return created;
     }
 
+    public void setUpdated(String updated) {
+        this.updated = updated;
+        this.updatedTime = parseTime(updated);
+    }
+
+    public void setResolved(String resolved) {
+        this.resolved = resolved;
+        this.resolvedTime = parseTime(resolved);
+    }
+
+    public void setCreated(String created) {
+        this.created = created;
+        this.createdTime = parseTime(created);
+    }
+
+    /**
+     * @return the last update date in milliseconds since the epoch, or {@link #NO_DATE}
+     */
+    public long getUpdatedTime() {
+        return updatedTime;
+    }
+
+    /**
+     * @return the resolution date in milliseconds since the epoch, or {@link #NO_DATE}
+     */
+    public long getResolvedTime() {
+        return resolvedTime;
+    }
+
+    /**
+     * @return the creation date in milliseconds since the epoch, or {@link #NO_DATE}
+     */
+    public long getCreatedTime() {
+        return createdTime;
+    }
+
+    /**
+     * @param value a date sent by YouTrack, in milliseconds since the epoch
+     * @return the parsed date or {@link #NO_DATE} if the value is missing or invalid
+     */
+    public static long parseTime(String value) {
+        return NumberUtils.toLong(value, NO_DATE);
+    }
+
     public String getLink() {
         return link;
     }
@@ -95,6 +195,43 @@ public class ItemObject {
         this.link = link;
     }
 
+    public String getNote() {
+        return note;
+    }
+
+    /**
+     * @param note the user-specified note to attach to the issue (see the "list" source)
+     * @return a copy of this issue carrying the passed note, so that the same issue can be listed with different
+     *         notes, or this issue when neither of them has a note
+     */
+    public ItemObject withNote(String note) {
+        if (StringUtils.isEmpty(note) && StringUtils.isEmpty(this.note)) {
+            return this;
+        }
+        ItemObject issue = new ItemObject(this);
+        issue.note = note;
+        return issue;
+    }
+
+    /**
+     * @param id the id of the issue that couldn't be retrieved
+     * @param link the link to the issue
+     * @param error the reason why the issue couldn't be retrieved, displayed as its summary
+     * @return a placeholder displayed instead of an issue that couldn't be retrieved
+     */
+    public static ItemObject error(String id, String link, String error) {
+        ItemObject issue = new ItemObject(error, id, null, null, null, null, null, link);
+        issue.error = error;
+        return issue;
+    }
+
+    /**
+     * @return the reason why the issue couldn't be retrieved, or {@code null} if this is an actual YouTrack issue
+     */
+    public String getError() {
+        return error;
+    }
+
     public ReporterObject getReporter() {
         return reporter;
     }
@@ -103,14 +240,31 @@ public class ItemObject {
         return customFieldsList;
     }
 
+    public void setCustomFieldsList(List<CustomFields> customFieldsList) {
+        this.customFieldsList = customFieldsList;
+        this.customFieldsByName = indexCustomFields(customFieldsList);
+    }
+
+    /**
+     * @param id the name of the custom field (case insensitive)
+     * @return the custom field, or a custom field without any value if the issue doesn't have this field (or if it
+     *         wasn't fetched)
+     */
     public CustomFields getCustomField(String id) {
-        Optional<CustomFields> result = customFieldsList.stream().filter(item -> item.getName().equalsIgnoreCase(id))
-                .findFirst();
+        CustomFields result = id != null ? customFieldsByName.get(id.toLowerCase(Locale.ROOT)) : null;
+        return result != null ? result : new CustomFields(id, null, null);
+    }
 
-        if (result.isPresent()) {
-            return result.get();
-        } else {
-            throw new UnsupportedOperationException(String.format("Field %s is not supported for task %s", id, this.id));
+    private static Map<String, CustomFields> indexCustomFields(List<CustomFields> customFieldsList) {
+        Map<String, CustomFields> index = new HashMap<>();
+        if (customFieldsList != null) {
+            for (CustomFields customField : customFieldsList) {
+                if (customField.getName() != null) {
+                    // Keep the first field when several fields have the same name
+                    index.putIfAbsent(customField.getName().toLowerCase(Locale.ROOT), customField);
+                }
+            }
         }
+        return index;
     }
 }
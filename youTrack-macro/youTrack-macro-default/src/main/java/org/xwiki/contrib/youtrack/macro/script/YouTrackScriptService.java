@@ -0,0 +1,108 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.script;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackCircuitBreaker;
+import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackHTTPClientRegistry;
+import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackIssueReader;
+import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackStatistics;
+import org.xwiki.script.service.ScriptService;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Exposes the health and usage statistics of the configured YouTrack servers to scripts (e.g. to the administration
+ * UI).
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component
+@Named("youtrack")
+@Singleton
+public class YouTrackScriptService implements ScriptService
+{
+    @Inject
+    private YouTrackConfiguration configuration;
+
+    @Inject
+    private YouTrackCircuitBreaker circuitBreaker;
+
+    @Inject
+    private YouTrackStatistics statistics;
+
+    @Inject
+    private YouTrackHTTPClientRegistry clientRegistry;
+
+    /**
+     * @param serverId the id of a configured YouTrack server
+     * @return the state of the circuit breaker of the passed server ({@code CLOSED} when the server is available,
+     *         {@code OPEN} when the calls to it are suspended and {@code HALF_OPEN} when they are being resumed), or
+     *         {@code null} if there's no such server
+     */
+    public String getServerState(String serverId)
+    {
+        YouTrackServer youTrackServer = this.configuration.getYouTrackServers().get(serverId);
+        return youTrackServer != null ? this.circuitBreaker.getState(youTrackServer).name() : null;
+    }
+
+    /**
+     * @return the state of the circuit breaker of each configured YouTrack server, indexed by server id
+     * @see #getServerState(String)
+     */
+    public Map<String, String> getServerStates()
+    {
+        Map<String, String> states = new LinkedHashMap<>();
+        for (Map.Entry<String, YouTrackServer> entry : this.configuration.getYouTrackServers().entrySet()) {
+            states.put(entry.getKey(), this.circuitBreaker.getState(entry.getValue()).name());
+        }
+        return states;
+    }
+
+    /**
+     * @param serverId the id of a configured YouTrack server
+     * @return the usage statistics of the passed server (number of requests, retries, failures, etc.) since the wiki
+     *         was started, and the size of its string pools since it was last configured, indexed by name
+     */
+    public Map<String, Long> getStatistics(String serverId)
+    {
+        YouTrackServer youTrackServer = this.configuration.getYouTrackServers().get(serverId);
+        if (youTrackServer == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Long> values = new TreeMap<>(this.statistics.get(youTrackServer));
+        YouTrackIssueReader issueReader = this.clientRegistry.getEndpoint(youTrackServer).getIssueReader();
+        values.put(YouTrackStatistics.POOLED_STRINGS,
+            (long) issueReader.getStringPool().size() + issueReader.getURLPool().size());
+        values.put(YouTrackStatistics.POOLED_STRING_HITS,
+            issueReader.getStringPool().getHits() + issueReader.getURLPool().getHits());
+        return values;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.YouTrackDataSource;
+import org.xwiki.contrib.youtrack.macro.YouTrackDisplayer;
+import org.xwiki.contrib.youtrack.macro.YouTrackField;
+import org.xwiki.contrib.youtrack.macro.YouTrackFields;
+import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
+import org.xwiki.contrib.youtrack.macro.internal.source.ListYouTrackDataSource;
+import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackFieldProjection;
+import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackPrefetchedIssues;
+import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackServerResolver;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+import org.xwiki.properties.BeanManager;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link YouTrackPrefetchTransformation}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackPrefetchTransformationTest
+{
+    @Rule
+    public MockitoComponentMockingRule<YouTrackPrefetchTransformation> mocker =
+        new MockitoComponentMockingRule<>(YouTrackPrefetchTransformation.class);
+
+    private final YouTrackServer server = new YouTrackServer("http://youtrack");
+
+    private final YouTrackServer otherServer = new YouTrackServer("http://other");
+
+    private final YouTrackFieldProjection tableProjection =
+        YouTrackFieldProjection.of(Arrays.asList(YouTrackField.KEY, YouTrackField.SUMMARY));
+
+    private final YouTrackFieldProjection enumProjection =
+        YouTrackFieldProjection.of(Arrays.asList(YouTrackField.KEY, YouTrackField.REPORTER));
+
+    private final List<ItemObject> issues = Collections.singletonList(issue("TEST-1"));
+
+    private ListYouTrackDataSource listSource;
+
+    private YouTrackPrefetchedIssues prefetchedIssues;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        // Parse the macro content and parameters for real, but don't fetch anything.
+        this.listSource = mock(ListYouTrackDataSource.class, CALLS_REAL_METHODS);
+        doReturn(this.issues).when(this.listSource).getIssues(anyCollection(), any(), any());
+        this.mocker.registerComponent(YouTrackDataSource.class, "list", this.listSource);
+
+        registerDisplayer("table", YouTrackField.KEY, YouTrackField.SUMMARY);
+        registerDisplayer("enum", YouTrackField.KEY, YouTrackField.REPORTER);
+
+        BeanManager beanManager = this.mocker.getInstance(BeanManager.class);
+        doAnswer(invocation -> {
+            YouTrackMacroParameters parameters = invocation.getArgument(0);
+            Map<String, String> values = invocation.getArgument(1);
+            values.forEach((name, value) -> {
+                if ("id".equals(name)) {
+                    parameters.setId(value);
+                } else if ("source".equals(name)) {
+                    parameters.setSource(value);
+                } else if ("style".equals(name)) {
+                    parameters.setStyle(value);
+                } else {
+                    parameters.getParameters().setProperty(name, value);
+                }
+            });
+            return null;
+        }).when(beanManager).populate(any(), any());
+
+        YouTrackServerResolver serverResolver = this.mocker.getInstance(YouTrackServerResolver.class);
+        when(serverResolver.resolve(any())).thenAnswer(invocation -> "other".equals(
+            invocation.<YouTrackMacroParameters>getArgument(0).getId()) ? this.otherServer : this.server);
+
+        this.prefetchedIssues = this.mocker.getInstance(YouTrackPrefetchedIssues.class);
+        when(this.prefetchedIssues.isAvailable()).thenReturn(true);
+    }
+
+    @Test
+    public void issuesOfAllTheListMacrosAreFetchedAtOnce() throws Exception
+    {
+        XDOM xdom = new XDOM(Arrays.asList(
+            macro("youtrack", "TEST-1\nTEST-2|some note"),
+            new ParagraphBlock(Collections.singletonList(macro("YouTrack", "test-3\nTEST-1"))),
+            macro("youtrack", "project: TEST", "source", "jql"),
+            macro("youtrack", "TEST-4", "source.list.batch", "false"),
+            macro("info", "TEST-5")));
+
+        transform(xdom);
+
+        verify(this.listSource, times(1)).getIssues(anyCollection(), any(), any());
+        verify(this.listSource).getIssues(ids("TEST-1", "TEST-2", "test-3"), this.server,
+            this.tableProjection);
+        verify(this.prefetchedIssues).put(this.server, this.issues, this.tableProjection);
+    }
+
+    @Test
+    public void issuesAreFetchedPerServerAndProjection() throws Exception
+    {
+        XDOM xdom = new XDOM(Arrays.asList(
+            macro("youtrack", "TEST-1"),
+            macro("youtrack", "TEST-2", "style", "enum"),
+            macro("youtrack", "OTHER-1", "id", "other"),
+            macro("youtrack", "TEST-3")));
+
+        transform(xdom);
+
+        verify(this.listSource).getIssues(ids("TEST-1", "TEST-3"), this.server, this.tableProjection);
+        verify(this.listSource).getIssues(ids("TEST-2"), this.server, this.enumProjection);
+        verify(this.listSource).getIssues(ids("OTHER-1"), this.otherServer,
+            this.tableProjection);
+        verify(this.listSource, times(3)).getIssues(anyCollection(), any(), any());
+    }
+
+    @Test
+    public void nothingIsFetchedWithoutRequestStore() throws Exception
+    {
+        when(this.prefetchedIssues.isAvailable()).thenReturn(false);
+
+        transform(new XDOM(Collections.singletonList(macro("youtrack", "TEST-1"))));
+
+        verify(this.listSource, never()).getIssues(anyCollection(), any(), any());
+        verify(this.prefetchedIssues, never()).put(any(), any(), eq(this.tableProjection));
+    }
+
+    private void transform(XDOM xdom) throws Exception
+    {
+        this.mocker.getComponentUnderTest().transform(xdom, new TransformationContext(xdom, Syntax.XWIKI_2_1));
+    }
+
+    private void registerDisplayer(String style, YouTrackField... fields) throws Exception
+    {
+        YouTrackDisplayer displayer = mock(YouTrackDisplayer.class);
+        when(displayer.getFields(any())).thenReturn(new YouTrackFields(Arrays.asList(fields)));
+        this.mocker.registerComponent(YouTrackDisplayer.class, style, displayer);
+    }
+
+    private Block macro(String id, String content, String... parameters)
+    {
+        Map<String, String> parameterMap = new HashMap<>();
+        for (int i = 0; i < parameters.length; i += 2) {
+            parameterMap.put(parameters[i], parameters[i + 1]);
+        }
+        return new MacroBlock(id, parameterMap, content, false);
+    }
+
+    private Set<String> ids(String... ids)
+    {
+        return new LinkedHashSet<>(Arrays.asList(ids));
+    }
+
+    private ItemObject issue(String id)
+    {
+        return new ItemObject("summary", id, null, null, null, Collections.emptyList(), null, null);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.displayer;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.component.event.ComponentDescriptorAddedEvent;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.contrib.youtrack.macro.YouTrackField;
+import org.xwiki.contrib.youtrack.macro.YouTrackFieldDisplayer;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import javax.inject.Provider;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link YouTrackFieldDisplayerResolver} and {@link YouTrackFieldDisplayerListener}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackFieldDisplayerResolverTest
+{
+    @Rule
+    public MockitoComponentMockingRule<YouTrackFieldDisplayerResolver> mocker =
+        new MockitoComponentMockingRule<>(YouTrackFieldDisplayerResolver.class);
+
+    @Rule
+    public MockitoComponentMockingRule<YouTrackFieldDisplayerListener> listenerMocker =
+        new MockitoComponentMockingRule<>(YouTrackFieldDisplayerListener.class);
+
+    private final YouTrackFieldDisplayer stateDisplayer = mock(YouTrackFieldDisplayer.class);
+
+    private final YouTrackFieldDisplayer dateDisplayer = mock(YouTrackFieldDisplayer.class);
+
+    private YouTrackFieldDisplayer defaultDisplayer;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        registerDisplayer("state", this.stateDisplayer);
+        registerDisplayer("type/date", this.dateDisplayer);
+
+        this.defaultDisplayer = this.mocker.getInstance(YouTrackFieldDisplayer.class);
+    }
+
+    @Test
+    public void resolveByIdThenByTypeThenDefault() throws Exception
+    {
+        YouTrackFieldDisplayerResolver resolver = this.mocker.getComponentUnderTest();
+
+        assertSame(this.stateDisplayer, resolver.resolve(new YouTrackField("state", "State", "text")));
+        assertSame(this.dateDisplayer, resolver.resolve(new YouTrackField("due", "Due", "date")));
+        assertSame(this.defaultDisplayer, resolver.resolve(new YouTrackField("priority", "Priority", "text")));
+        assertSame(this.defaultDisplayer, resolver.resolve(new YouTrackField("estimation")));
+    }
+
+    @Test
+    public void flushWhenADisplayerIsRegistered() throws Exception
+    {
+        YouTrackFieldDisplayerResolver resolver = this.mocker.getComponentUnderTest();
+        Provider<YouTrackFieldDisplayerResolver> resolverProvider = this.listenerMocker.getInstance(
+            new DefaultParameterizedType(null, Provider.class, YouTrackFieldDisplayerResolver.class));
+        when(resolverProvider.get()).thenReturn(resolver);
+
+        YouTrackField priority = new YouTrackField("priority", "Priority", "text");
+        assertSame(this.defaultDisplayer, resolver.resolve(priority));
+
+        // The resolved displayer is kept until the listener is notified.
+        YouTrackFieldDisplayer priorityDisplayer = mock(YouTrackFieldDisplayer.class);
+        registerDisplayer("priority", priorityDisplayer);
+        assertSame(this.defaultDisplayer, resolver.resolve(priority));
+
+        this.listenerMocker.getComponentUnderTest()
+            .onEvent(new ComponentDescriptorAddedEvent(YouTrackFieldDisplayer.class), this.mocker, null);
+        assertSame(priorityDisplayer, resolver.resolve(priority));
+    }
+
+    private void registerDisplayer(String hint, YouTrackFieldDisplayer displayer) throws Exception
+    {
+        this.mocker.registerComponent(YouTrackFieldDisplayer.class, hint, displayer);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.displayer.field;
+
+import org.junit.Test;
+import org.xwiki.contrib.youtrack.macro.YouTrackField;
+import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.WordBlock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link AbstractDateYouTrackFieldDisplayer}, through {@link CreatedYouTrackFieldDisplayer}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class CreatedYouTrackFieldDisplayerTest
+{
+    private static final int THREADS = 8;
+
+    private static final int ITERATIONS = 2000;
+
+    private final CreatedYouTrackFieldDisplayer displayer = new CreatedYouTrackFieldDisplayer();
+
+    @Test
+    public void displayField()
+    {
+        assertEquals("1970-01-02", display(86400000L, parameters(null, null, "UTC")));
+        assertEquals("02/01/1970 01:00", display(86400000L, parameters("dd/MM/yyyy HH:mm", "fr_FR", "Europe/Paris")));
+        assertEquals("Jan 2, 1970", display(86400000L, parameters("MMM d, yyyy", "en_US", "UTC")));
+
+        // Invalid format: fall back on the default format
+        assertEquals(10, display(86400000L, parameters("yyyy-MM-dd bbb", null, null)).length());
+
+        assertTrue(this.displayer.displayField(YouTrackField.CREATED, issue(null), parameters(null, null, null))
+            .isEmpty());
+    }
+
+    @Test
+    public void displayFieldConcurrently() throws Exception
+    {
+        List<YouTrackMacroParameters> allParameters = new ArrayList<>();
+        allParameters.add(parameters(null, null, "UTC"));
+        allParameters.add(parameters("dd MMMM yyyy HH:mm:ss", "fr_FR", "Europe/Paris"));
+        allParameters.add(parameters("EEE, d MMM yyyy HH:mm", "en_US", "America/New_York"));
+
+        // Compute the expected results sequentially
+        long[] times = new long[ITERATIONS];
+        String[][] expected = new String[ITERATIONS][allParameters.size()];
+        for (int i = 0; i < ITERATIONS; i++) {
+            times[i] = 1000000000000L + i * 7919000L;
+            for (int j = 0; j < allParameters.size(); j++) {
+                expected[i][j] = display(times[i], allParameters.get(j));
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int offset = thread;
+                tasks.add(() -> {
+                    int checked = 0;
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        int index = (i + offset * 31) % ITERATIONS;
+                        int j = (i + offset) % allParameters.size();
+                        assertEquals(expected[index][j], display(times[index], allParameters.get(j)));
+                        checked++;
+                    }
+                    return checked;
+                });
+            }
+            for (Future<Integer> result : executor.invokeAll(tasks)) {
+                assertEquals(ITERATIONS, (int) result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String display(long time, YouTrackMacroParameters parameters)
+    {
+        List<Block> blocks =
+            this.displayer.displayField(YouTrackField.CREATED, issue(String.valueOf(time)), parameters);
+        assertEquals(1, blocks.size());
+        return ((WordBlock) blocks.get(0)).getWord();
+    }
+
+    private ItemObject issue(String created)
+    {
+        return new ItemObject("summary", "TEST-1", null, null, created, Collections.emptyList(), null, null);
+    }
+
+    private YouTrackMacroParameters parameters(String format, String locale, String timezone)
+    {
+        YouTrackMacroParameters parameters = new YouTrackMacroParameters();
+        if (format != null) {
+            parameters.getParameters().setProperty("field.date.format", format);
+        }
+        if (locale != null) {
+            parameters.getParameters().setProperty("field.date.locale", locale);
+        }
+        if (timezone != null) {
+            parameters.getParameters().setProperty("field.date.timezone", timezone);
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link HTTPYouTrackFetcher}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class HTTPYouTrackFetcherTest
+{
+    private static final String ISSUE_PATH = "/api/issues/XWIKI-1?fields=idReadable";
+
+    private static final String ISSUES_PATH = "/api/issues?query=project:XWIKI&fields=idReadable";
+
+    @Rule
+    public MockitoComponentMockingRule<HTTPYouTrackFetcher> mocker =
+        new MockitoComponentMockingRule<>(HTTPYouTrackFetcher.class);
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    private final CloseableHttpClient httpClient = HttpClients.createDefault();
+
+    private YouTrackServer server;
+
+    private YouTrackRetryPolicy retryPolicy;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.server = new YouTrackServer.Builder("http://localhost:" + this.wireMockRule.port())
+            .setConnectionRequestTimeout(1000).setConnectTimeout(2000).setReadTimeout(5000).build();
+
+        YouTrackHTTPClientRegistry clientRegistry = this.mocker.getInstance(YouTrackHTTPClientRegistry.class);
+        when(clientRegistry.acquireHttpClient(this.server)).thenReturn(this.httpClient);
+        when(clientRegistry.getEndpoint(this.server)).thenReturn(new YouTrackEndpoint(this.server));
+
+        YouTrackRateLimiter rateLimiter = this.mocker.getInstance(YouTrackRateLimiter.class);
+        when(rateLimiter.acquire(this.server)).thenReturn(true);
+        YouTrackCircuitBreaker circuitBreaker = this.mocker.getInstance(YouTrackCircuitBreaker.class);
+        when(circuitBreaker.tryAcquire(this.server)).thenReturn(true);
+        this.retryPolicy = this.mocker.getInstance(YouTrackRetryPolicy.class);
+        when(this.retryPolicy.getRetryDelay(any(), any(), anyInt(), anyLong()))
+            .thenReturn(YouTrackRetryPolicy.NO_RETRY);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        this.httpClient.close();
+    }
+
+    @Test
+    public void identicalRequestsShareTheSameFailure() throws Exception
+    {
+        this.wireMockRule.stubFor(get(urlEqualTo(ISSUE_PATH))
+            .willReturn(aResponse().withStatus(404).withBody("<h1>Issue not found</h1>").withFixedDelay(1000)));
+
+        HTTPYouTrackFetcher fetcher = this.mocker.getComponentUnderTest();
+        String url = this.server.getURL() + ISSUE_PATH;
+        CountDownLatch start = new CountDownLatch(1);
+        Callable<Object> fetch = () -> {
+            start.await();
+            return fetcher.fetchIssue(url, this.server);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            results.add(executor.submit(fetch));
+            results.add(executor.submit(fetch));
+            start.countDown();
+
+            List<Throwable> errors = new ArrayList<>();
+            for (Future<Object> result : results) {
+                try {
+                    result.get();
+                    fail("The request should have failed");
+                } catch (ExecutionException e) {
+                    errors.add(e.getCause());
+                }
+            }
+
+            // The request is sent once and both callers get its failure.
+            this.wireMockRule.verify(1, getRequestedFor(urlEqualTo(ISSUE_PATH)));
+            assertTrue(errors.get(0) instanceof YouTrackResponseException);
+            assertEquals(404, ((YouTrackResponseException) errors.get(0)).getStatusCode());
+            assertSame(errors.get(0), errors.get(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void responseWithoutContent() throws Exception
+    {
+        this.wireMockRule.stubFor(get(urlEqualTo(ISSUE_PATH)).willReturn(aResponse().withStatus(204)));
+
+        try {
+            this.mocker.getComponentUnderTest().fetchIssue(this.server.getURL() + ISSUE_PATH, this.server);
+            fail("The request should have failed");
+        } catch (YouTrackResponseException e) {
+            assertEquals(204, e.getStatusCode());
+            assertTrue(e.getMessage().contains("Empty response"));
+        }
+    }
+
+    @Test
+    public void getWaitTimeoutIncludesTheRetries() throws Exception
+    {
+        HTTPYouTrackFetcher fetcher = this.mocker.getComponentUnderTest();
+        assertEquals(1000 * 3 + 2000 + 5000 * 2, fetcher.getWaitTimeout(this.server));
+
+        when(this.retryPolicy.getRetryDuration()).thenReturn(10000L);
+        assertEquals(10000 + 1000 * 3 + 2000 + 5000 * 2, fetcher.getWaitTimeout(this.server));
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ListYouTrackDataSource}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class ListYouTrackDataSourceTest
+{
+    @Rule
+    public MockitoComponentMockingRule<ListYouTrackDataSource> mocker =
+        new MockitoComponentMockingRule<>(ListYouTrackDataSource.class);
+
+    private final YouTrackServer server = new YouTrackServer("http://youtrack");
+
+    private HTTPYouTrackFetcher fetcher;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        YouTrackServerResolver resolver = this.mocker.getInstance(YouTrackServerResolver.class);
+        when(resolver.resolve(any())).thenReturn(this.server);
+
+        this.fetcher = this.mocker.getInstance(HTTPYouTrackFetcher.class);
+        when(this.fetcher.getEndpoint(this.server)).thenReturn(new YouTrackEndpoint(this.server));
+
+        YouTrackIssueBatcher batcher = this.mocker.getInstance(YouTrackIssueBatcher.class);
+        when(batcher.get(same(this.server), any(), any(), any())).thenAnswer(invocation -> invocation
+            .<YouTrackIssueBatcher.Loader>getArgument(3).load(invocation.<Collection<String>>getArgument(1)));
+    }
+
+    @Test
+    public void getDataWithMissingIssue() throws Exception
+    {
+        when(this.fetcher.fetchIssues(anyString(), same(this.server)))
+            .thenReturn(Collections.singletonList(issue("TEST-1")));
+
+        List<ItemObject> issues =
+            this.mocker.getComponentUnderTest().getData("TEST-2\ntest-1|note", new YouTrackMacroParameters());
+
+        assertEquals(2, issues.size());
+        assertEquals("TEST-2", issues.get(0).getId());
+        assertEquals("Issue [TEST-2] not found", issues.get(0).getError());
+        assertEquals("http://youtrack/issue/TEST-2", issues.get(0).getLink());
+        assertEquals("TEST-1", issues.get(1).getId());
+        assertEquals("note", issues.get(1).getNote());
+        assertNull(issues.get(1).getError());
+    }
+
+    @Test
+    public void getDataWithIdsNotAllowedInQuery() throws Exception
+    {
+        when(this.fetcher.fetchIssues(anyString(), same(this.server)))
+            .thenReturn(Collections.singletonList(issue("TEST-1")));
+        when(this.fetcher.fetchIssue(anyString(), same(this.server))).thenReturn(issue("TEST-2"));
+
+        List<ItemObject> issues = this.mocker.getComponentUnderTest()
+            .getData("TEST-1\nTEST-2 or TEST-3, TEST-4", new YouTrackMacroParameters());
+
+        assertEquals(2, issues.size());
+        assertEquals("TEST-1", issues.get(0).getId());
+        assertEquals("TEST-2", issues.get(1).getId());
+
+        // Only the valid id is part of the query, the other one is fetched alone.
+        verify(this.fetcher).fetchIssues(argThat(url -> url.endsWith("query=issue+id%3A+TEST-1")), same(this.server));
+        verify(this.fetcher).fetchIssue(argThat(url -> url.startsWith("http://youtrack/api/issues/TEST-2+or+TEST-3")),
+            same(this.server));
+    }
+
+    @Test
+    public void getDataOneByOneWithFailedIssue() throws Exception
+    {
+        // No parallelism: the issues are fetched one by one by the rendering thread.
+        YouTrackIssueFetchExecutor executor = this.mocker.getInstance(YouTrackIssueFetchExecutor.class);
+        when(executor.getExecutor(this.server)).thenReturn(null);
+        when(this.fetcher.fetchIssue(anyString(), same(this.server))).thenAnswer(invocation -> {
+            if (invocation.<String>getArgument(0).startsWith("http://youtrack/api/issues/TEST-1?")) {
+                throw new YouTrackResponseException("Not found", 404);
+            }
+            return issue("TEST-2");
+        });
+        YouTrackMacroParameters parameters = new YouTrackMacroParameters();
+        parameters.getParameters().setProperty("source.list.batch", "false");
+
+        List<ItemObject> issues = this.mocker.getComponentUnderTest().getData("TEST-1|note\nTEST-2", parameters);
+
+        assertEquals(2, issues.size());
+        assertEquals("TEST-1", issues.get(0).getId());
+        assertEquals("note", issues.get(0).getNote());
+        assertEquals("http://youtrack/issue/TEST-1", issues.get(0).getLink());
+        assertNotNull(issues.get(0).getError());
+        assertEquals("TEST-2", issues.get(1).getId());
+        assertNull(issues.get(1).getError());
+    }
+
+    @Test
+    public void getIssuesSkipsMissingAndInvalidIds() throws Exception
+    {
+        when(this.fetcher.fetchIssues(anyString(), same(this.server)))
+            .thenReturn(Collections.singletonList(issue("TEST-1")));
+
+        List<ItemObject> issues = this.mocker.getComponentUnderTest()
+            .getIssues(Arrays.asList("TEST-1", "TEST-2", "TEST 3"), this.server,
+                YouTrackFieldProjection.ALL);
+
+        assertEquals(1, issues.size());
+        assertEquals("TEST-1", issues.get(0).getId());
+        assertNull(issues.get(0).getError());
+    }
+
+    private ItemObject issue(String id)
+    {
+        return new ItemObject("summary", id, null, null, null, Collections.emptyList(), null,
+            "http://youtrack/issue/" + id);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import com.google.gson.stream.MalformedJsonException;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackCircuitBreaker.State;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link YouTrackCircuitBreaker}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackCircuitBreakerTest
+{
+    @Rule
+    public MockitoComponentMockingRule<YouTrackCircuitBreaker> mocker =
+        new MockitoComponentMockingRule<>(YouTrackCircuitBreaker.class);
+
+    private final YouTrackServer server = new YouTrackServer("http://youtrack");
+
+    private YouTrackConfiguration configuration;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.configuration = this.mocker.getInstance(YouTrackConfiguration.class);
+        when(this.configuration.getCircuitBreakerFailureRate()).thenReturn(50);
+        when(this.configuration.getCircuitBreakerWindow()).thenReturn(4);
+        when(this.configuration.getCircuitBreakerCoolDown()).thenReturn(1);
+        when(this.configuration.getCircuitBreakerProbes()).thenReturn(2);
+    }
+
+    private void call(YouTrackCircuitBreaker breaker, boolean failure)
+    {
+        assertTrue(breaker.tryAcquire(this.server));
+        if (failure) {
+            breaker.onFailure(this.server);
+        } else {
+            breaker.onSuccess(this.server);
+        }
+    }
+
+    private YouTrackCircuitBreaker open() throws Exception
+    {
+        YouTrackCircuitBreaker breaker = this.mocker.getComponentUnderTest();
+        for (int i = 0; i < 4; i++) {
+            call(breaker, true);
+        }
+        assertEquals(State.OPEN, breaker.getState(this.server));
+        return breaker;
+    }
+
+    @Test
+    public void opensWhenTheFailureRateIsReached() throws Exception
+    {
+        YouTrackCircuitBreaker breaker = this.mocker.getComponentUnderTest();
+
+        call(breaker, false);
+        call(breaker, true);
+        call(breaker, false);
+        // Not enough requests yet to compute the failure rate.
+        assertEquals(State.CLOSED, breaker.getState(this.server));
+
+        call(breaker, true);
+        assertEquals(State.OPEN, breaker.getState(this.server));
+        assertTrue(breaker.isOpen(this.server));
+        assertFalse(breaker.tryAcquire(this.server));
+
+        // The other servers are not impacted.
+        assertTrue(breaker.tryAcquire(new YouTrackServer("http://other")));
+    }
+
+    @Test
+    public void closesWhenAllTheProbesSucceed() throws Exception
+    {
+        YouTrackCircuitBreaker breaker = open();
+
+        Thread.sleep(1100);
+
+        // Only 2 trial requests are let through.
+        assertTrue(breaker.tryAcquire(this.server));
+        assertEquals(State.HALF_OPEN, breaker.getState(this.server));
+        assertTrue(breaker.tryAcquire(this.server));
+        assertFalse(breaker.tryAcquire(this.server));
+
+        // A trial request which is finally not sent gives its place back.
+        breaker.release(this.server);
+        assertTrue(breaker.tryAcquire(this.server));
+
+        breaker.onSuccess(this.server);
+        assertEquals(State.HALF_OPEN, breaker.getState(this.server));
+        breaker.onSuccess(this.server);
+        assertEquals(State.CLOSED, breaker.getState(this.server));
+
+        // The failures counted before being suspended are forgotten.
+        call(breaker, true);
+        assertEquals(State.CLOSED, breaker.getState(this.server));
+    }
+
+    @Test
+    public void opensAgainWhenAProbeFails() throws Exception
+    {
+        YouTrackCircuitBreaker breaker = open();
+
+        Thread.sleep(1100);
+
+        call(breaker, true);
+        assertEquals(State.OPEN, breaker.getState(this.server));
+        assertFalse(breaker.tryAcquire(this.server));
+    }
+
+    @Test
+    public void isServerFailure() throws Exception
+    {
+        YouTrackCircuitBreaker breaker = this.mocker.getComponentUnderTest();
+
+        assertTrue(breaker.isServerFailure(new ConnectException()));
+        assertTrue(breaker.isServerFailure(new NoHttpResponseException("no response")));
+        assertTrue(breaker.isServerFailure(new SocketException()));
+        assertTrue(breaker.isServerFailure(new UnknownHostException()));
+        assertTrue(breaker.isServerFailure(new SocketTimeoutException()));
+        assertTrue(breaker.isServerFailure(new ConnectTimeoutException()));
+        assertTrue(breaker.isServerFailure(new YouTrackResponseException("error", 500)));
+        assertTrue(breaker.isServerFailure(new YouTrackResponseException("error", 503)));
+        assertTrue(breaker.isServerFailure(new YouTrackResponseException("error", 429)));
+        assertFalse(breaker.isServerFailure(new YouTrackResponseException("error", 404)));
+        assertFalse(breaker.isServerFailure(new YouTrackResponseException("error", 400)));
+        assertFalse(breaker.isServerFailure(new Exception()));
+        assertFalse(breaker.isServerFailure(new IOException()));
+        assertFalse(breaker.isServerFailure(new MalformedURLException()));
+        assertFalse(breaker.isServerFailure(new MalformedJsonException("malformed")));
+        assertFalse(breaker.isServerFailure(new ConnectionPoolTimeoutException()));
+    }
+
+    @Test
+    public void disabled() throws Exception
+    {
+        when(this.configuration.getCircuitBreakerFailureRate()).thenReturn(0);
+        YouTrackCircuitBreaker breaker = this.mocker.getComponentUnderTest();
+
+        for (int i = 0; i < 10; i++) {
+            call(breaker, true);
+        }
+        assertEquals(State.CLOSED, breaker.getState(this.server));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.junit.Test;
+import org.xwiki.contrib.youtrack.macro.YouTrackField;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for {@link YouTrackFieldProjection}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackFieldProjectionTest
+{
+    private static final String CUSTOM_FIELDS = ",customFields(name,value(name,fullName,avatarUrl))";
+
+    @Test
+    public void allFieldsWhenNoFieldIsDisplayed()
+    {
+        assertSame(YouTrackFieldProjection.ALL, YouTrackFieldProjection.of(null));
+        assertSame(YouTrackFieldProjection.ALL, YouTrackFieldProjection.of(Collections.emptyList()));
+        assertEquals("fields=idReadable,summary,reporter(fullName,avatarUrl),created,updated,resolved" + CUSTOM_FIELDS
+            + "&customFields=state&customFields=type&customFields=assignee&customFields=priority"
+            + "&customFields=reviewer&customFields=fix+versions&customFields=sprints",
+            YouTrackFieldProjection.ALL.getQueryString());
+    }
+
+    @Test
+    public void issueFields()
+    {
+        assertEquals("fields=idReadable,summary", query(YouTrackField.SUMMARY));
+        assertEquals("fields=idReadable,summary,created,reporter(fullName,avatarUrl)",
+            query(YouTrackField.SUMMARY, YouTrackField.REPORTER, YouTrackField.CREATED));
+    }
+
+    @Test
+    public void keyRequiresTheState()
+    {
+        assertEquals("fields=idReadable,summary" + CUSTOM_FIELDS + "&customFields=state", query(YouTrackField.KEY));
+
+        // The state is only asked once, whatever its case.
+        assertEquals("fields=idReadable,summary" + CUSTOM_FIELDS + "&customFields=State",
+            query(YouTrackField.KEY, new YouTrackField("State")));
+    }
+
+    @Test
+    public void noteIsNotFetched()
+    {
+        assertEquals("fields=idReadable,summary",
+            query(YouTrackField.SUMMARY, new YouTrackField(YouTrackField.NOTE)));
+    }
+
+    @Test
+    public void customFieldNamesAreEncoded()
+    {
+        assertEquals("fields=idReadable,summary" + CUSTOM_FIELDS + "&customFields=Story+points+%26+co"
+            + "&customFields=fix+versions",
+            query(YouTrackField.FIXVERSION, new YouTrackField("Story points & co")));
+    }
+
+    @Test
+    public void projectionsAreCachedInABoundedCache()
+    {
+        YouTrackFieldProjection projection = YouTrackFieldProjection.of(Arrays.asList(YouTrackField.TYPE));
+        assertSame(projection, YouTrackFieldProjection.of(Arrays.asList(new YouTrackField("type"))));
+
+        // The cache is cleared before it grows over its limit.
+        for (int i = 0; i < 200; i++) {
+            YouTrackFieldProjection.of(Arrays.asList(new YouTrackField("field" + i)));
+        }
+        YouTrackFieldProjection newProjection = YouTrackFieldProjection.of(Arrays.asList(YouTrackField.TYPE));
+        assertNotSame(projection, newProjection);
+        assertEquals(projection.getQueryString(), newProjection.getQueryString());
+    }
+
+    private String query(YouTrackField... fields)
+    {
+        return YouTrackFieldProjection.of(Arrays.asList(fields)).getQueryString();
+    }
+}
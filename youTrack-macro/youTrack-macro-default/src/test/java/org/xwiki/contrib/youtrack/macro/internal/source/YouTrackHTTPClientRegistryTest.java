@@ -0,0 +1,179 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import java.util.concurrent.Semaphore;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link YouTrackHTTPClientRegistry}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackHTTPClientRegistryTest
+{
+    private static final String PATH = "/api/issues";
+
+    @Rule
+    public MockitoComponentMockingRule<YouTrackHTTPClientRegistry> mocker =
+        new MockitoComponentMockingRule<>(YouTrackHTTPClientRegistry.class);
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    private YouTrackServer.Builder createServer()
+    {
+        return new YouTrackServer.Builder("http://localhost:" + this.wireMockRule.port())
+            .setConnectionRequestTimeout(100).setConnectTimeout(500).setReadTimeout(2000);
+    }
+
+    private int send(CloseableHttpClient client) throws Exception
+    {
+        String url = "http://localhost:" + this.wireMockRule.port() + PATH;
+        try (CloseableHttpResponse response = client.execute(new HttpGet(url))) {
+            EntityUtils.consume(response.getEntity());
+            return response.getStatusLine().getStatusCode();
+        }
+    }
+
+    @Test
+    public void closeWaitsUntilTheClientIsReleased() throws Exception
+    {
+        this.wireMockRule.stubFor(get(urlEqualTo(PATH)).willReturn(aResponse().withBody("[]")));
+        YouTrackServer server = createServer().build();
+        YouTrackHTTPClientRegistry registry = this.mocker.getComponentUnderTest();
+
+        CloseableHttpClient client = registry.acquireHttpClient(server);
+        assertSame(client, registry.acquireHttpClient(server));
+        registry.releaseHttpClient(client);
+        YouTrackEndpoint endpoint = registry.getEndpoint(server);
+
+        registry.close(server);
+
+        // The next requests use a new client, while the request in progress can still use the old one.
+        CloseableHttpClient newClient = registry.acquireHttpClient(server);
+        assertNotSame(client, newClient);
+        assertNotSame(endpoint, registry.getEndpoint(server));
+        assertEquals(200, send(client));
+
+        // The old client is closed once its last request is over.
+        registry.releaseHttpClient(client);
+        try {
+            send(client);
+            fail("The replaced client should have been closed");
+        } catch (IllegalStateException expected) {
+            // The connection pool is shut down.
+        }
+        assertEquals(200, send(newClient));
+        registry.releaseHttpClient(newClient);
+    }
+
+    @Test
+    public void closeReleasesTheUnusedClientRightAway() throws Exception
+    {
+        YouTrackServer server = createServer().build();
+        YouTrackHTTPClientRegistry registry = this.mocker.getComponentUnderTest();
+
+        CloseableHttpClient client = registry.acquireHttpClient(server);
+        registry.releaseHttpClient(client);
+
+        registry.close(server);
+
+        try {
+            send(client);
+            fail("The replaced client should have been closed");
+        } catch (IllegalStateException expected) {
+            // The connection pool is shut down.
+        }
+    }
+
+    @Test
+    public void disposeClosesTheReplacedClients() throws Exception
+    {
+        YouTrackServer server = createServer().build();
+        YouTrackHTTPClientRegistry registry = this.mocker.getComponentUnderTest();
+
+        CloseableHttpClient client = registry.acquireHttpClient(server);
+        registry.close(server);
+
+        registry.dispose();
+
+        try {
+            send(client);
+            fail("The replaced client should have been closed");
+        } catch (IllegalStateException expected) {
+            // The connection pool is shut down.
+        }
+    }
+
+    @Test
+    public void serversWithDifferentSettingsDontShareTheirClient() throws Exception
+    {
+        YouTrackServer server = createServer().build();
+        YouTrackServer modifiedServer = createServer().setMaxConnections(3).build();
+        YouTrackHTTPClientRegistry registry = this.mocker.getComponentUnderTest();
+
+        assertSame(registry.acquireHttpClient(server), registry.acquireHttpClient(createServer().build()));
+        assertNotSame(registry.acquireHttpClient(server), registry.acquireHttpClient(modifiedServer));
+        assertNotSame(registry.getEndpoint(server), registry.getEndpoint(modifiedServer));
+    }
+
+    @Test
+    public void requestPermitsAreReleasedWhenTheServerIsModified() throws Exception
+    {
+        YouTrackServer server = createServer().setMaxConcurrentRequests(2).build();
+        YouTrackServer modifiedServer = createServer().setMaxConcurrentRequests(5).build();
+        YouTrackHTTPClientRegistry registry = this.mocker.getComponentUnderTest();
+
+        Semaphore permits = registry.getRequestPermits(server);
+        assertSame(permits, registry.getRequestPermits(server));
+        permits.acquire();
+
+        // The new limit applies as soon as the server is modified.
+        assertEquals(5, registry.getRequestPermits(modifiedServer).availablePermits());
+
+        registry.close(server);
+
+        // The request still holding a permit releases it on the old semaphore.
+        assertNotSame(permits, registry.getRequestPermits(server));
+        assertEquals(2, registry.getRequestPermits(server).availablePermits());
+        assertNull(registry.getRequestPermits(createServer().build()));
+    }
+}
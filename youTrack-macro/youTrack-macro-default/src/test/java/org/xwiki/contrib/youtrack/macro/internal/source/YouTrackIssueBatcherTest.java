@@ -0,0 +1,215 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+import org.xwiki.rendering.macro.MacroExecutionException;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link YouTrackIssueBatcher}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackIssueBatcherTest
+{
+    @Rule
+    public MockitoComponentMockingRule<YouTrackIssueBatcher> mocker =
+        new MockitoComponentMockingRule<>(YouTrackIssueBatcher.class);
+
+    private final YouTrackServer server = new YouTrackServer("http://youtrack");
+
+    /**
+     * The batches loaded so far.
+     */
+    private final List<Collection<String>> loads = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown()
+    {
+        this.callers.shutdownNow();
+    }
+
+    private YouTrackIssueBatcher getBatcher(int window, int size) throws Exception
+    {
+        YouTrackConfiguration configuration = this.mocker.getInstance(YouTrackConfiguration.class);
+        when(configuration.getIssueBatchWindow()).thenReturn(window);
+        when(configuration.getIssueBatchSize()).thenReturn(size);
+        HTTPYouTrackFetcher fetcher = this.mocker.getInstance(HTTPYouTrackFetcher.class);
+        when(fetcher.getWaitTimeout(any())).thenReturn(5000L);
+        return this.mocker.getComponentUnderTest();
+    }
+
+    private List<ItemObject> load(Collection<String> issueIds)
+    {
+        this.loads.add(new HashSet<>(issueIds));
+        List<ItemObject> issues = new ArrayList<>();
+        for (String issueId : issueIds) {
+            issues.add(new ItemObject(issueId, issueId, null, null, null, null, null, null));
+        }
+        return issues;
+    }
+
+    private Future<List<ItemObject>> get(YouTrackIssueBatcher batcher, YouTrackIssueBatcher.Loader loader,
+        String... issueIds)
+    {
+        return get(batcher, this.server, loader, issueIds);
+    }
+
+    private Future<List<ItemObject>> get(YouTrackIssueBatcher batcher, YouTrackServer youTrackServer,
+        YouTrackIssueBatcher.Loader loader, String... issueIds)
+    {
+        Callable<List<ItemObject>> get =
+            () -> batcher.get(youTrackServer, Arrays.asList(issueIds), YouTrackFieldProjection.ALL, loader);
+        return this.callers.submit(get);
+    }
+
+    private String getId(Future<List<ItemObject>> result) throws Exception
+    {
+        List<ItemObject> issues = result.get();
+        assertEquals(1, issues.size());
+        return issues.get(0).getId();
+    }
+
+    @Test
+    public void issuesRequestedDuringTheWindowAreFetchedTogether() throws Exception
+    {
+        YouTrackIssueBatcher batcher = getBatcher(500, 10);
+
+        Future<List<ItemObject>> first = get(batcher, this::load, "XWIKI-1");
+        Future<List<ItemObject>> second = get(batcher, this::load, "xwiki-2");
+
+        assertEquals("XWIKI-1", getId(first));
+        assertEquals("XWIKI-2", getId(second));
+        assertEquals(Collections.singletonList(new HashSet<>(Arrays.asList("XWIKI-1", "XWIKI-2"))), this.loads);
+    }
+
+    @Test
+    public void fullBatchIsFetchedWithoutWaitingForTheWindow() throws Exception
+    {
+        YouTrackIssueBatcher batcher = getBatcher(60000, 2);
+
+        long start = System.currentTimeMillis();
+        Future<List<ItemObject>> first = get(batcher, this::load, "XWIKI-1");
+        Future<List<ItemObject>> second = get(batcher, this::load, "XWIKI-2");
+
+        assertEquals("XWIKI-1", getId(first));
+        assertEquals("XWIKI-2", getId(second));
+        assertTrue(System.currentTimeMillis() - start < 60000);
+        assertEquals(Collections.singletonList(new HashSet<>(Arrays.asList("XWIKI-1", "XWIKI-2"))), this.loads);
+
+        // Enough issues to make a batch on their own.
+        List<ItemObject> issues =
+            batcher.get(this.server, Arrays.asList("XWIKI-3", "XWIKI-4"), YouTrackFieldProjection.ALL, this::load);
+        assertEquals(2, issues.size());
+        assertEquals(new HashSet<>(Arrays.asList("XWIKI-3", "XWIKI-4")), this.loads.get(1));
+    }
+
+    @Test
+    public void issuesAreOnlyBatchedWithTheSameCredentials() throws Exception
+    {
+        YouTrackIssueBatcher batcher = getBatcher(500, 10);
+        YouTrackServer userServer = new YouTrackServer("http://youtrack", "user", "password");
+        YouTrackServer newPasswordServer = new YouTrackServer("http://youtrack", "user", "new password");
+        Map<YouTrackServer, Collection<String>> loadsByServer = new ConcurrentHashMap<>();
+
+        Future<List<ItemObject>> first = get(batcher, userServer, issueIds -> {
+            loadsByServer.put(userServer, new HashSet<>(issueIds));
+            return load(issueIds);
+        }, "XWIKI-1");
+        Future<List<ItemObject>> second = get(batcher, newPasswordServer, issueIds -> {
+            loadsByServer.put(newPasswordServer, new HashSet<>(issueIds));
+            return load(issueIds);
+        }, "XWIKI-2");
+
+        assertEquals("XWIKI-1", getId(first));
+        assertEquals("XWIKI-2", getId(second));
+        // Each issue is fetched with the credentials of its caller.
+        assertEquals(2, this.loads.size());
+        assertEquals(Collections.singleton("XWIKI-1"), loadsByServer.get(userServer));
+        assertEquals(Collections.singleton("XWIKI-2"), loadsByServer.get(newPasswordServer));
+    }
+
+    @Test
+    public void batchFailureIsPropagatedToAllTheCallers() throws Exception
+    {
+        YouTrackIssueBatcher batcher = getBatcher(500, 10);
+        MacroExecutionException error = new MacroExecutionException("Failed to fetch the issues");
+        YouTrackIssueBatcher.Loader loader = issueIds -> {
+            this.loads.add(issueIds);
+            throw error;
+        };
+
+        List<Future<List<ItemObject>>> results = Arrays.asList(get(batcher, loader, "XWIKI-1"),
+            get(batcher, loader, "XWIKI-2"));
+        for (Future<List<ItemObject>> result : results) {
+            try {
+                result.get();
+                fail("The batch should have failed");
+            } catch (ExecutionException e) {
+                assertSame(error, e.getCause());
+            }
+        }
+
+        // The issues are not fetched again by each caller.
+        assertEquals(1, this.loads.size());
+    }
+
+    @Test
+    public void disabled() throws Exception
+    {
+        YouTrackIssueBatcher batcher = getBatcher(0, 10);
+
+        batcher.get(this.server, Collections.singletonList("XWIKI-1"), YouTrackFieldProjection.ALL, this::load);
+        batcher.get(this.server, Collections.singletonList("XWIKI-2"), YouTrackFieldProjection.ALL, this::load);
+
+        assertEquals(Arrays.asList(Collections.singleton("XWIKI-1"), Collections.singleton("XWIKI-2")), this.loads);
+    }
+}
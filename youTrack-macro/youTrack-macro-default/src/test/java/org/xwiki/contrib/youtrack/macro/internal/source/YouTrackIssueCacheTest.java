@@ -0,0 +1,139 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.YouTrackField;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link YouTrackIssueCache}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackIssueCacheTest
+{
+    @Rule
+    public MockitoComponentMockingRule<YouTrackIssueCache> mocker =
+        new MockitoComponentMockingRule<>(YouTrackIssueCache.class);
+
+    private final YouTrackServer server = new YouTrackServer("http://youtrack");
+
+    private final ItemObject issue =
+        new ItemObject("summary", "TEST-1", null, null, null, Collections.emptyList(), null, null);
+
+    private YouTrackConfiguration configuration;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception
+    {
+        this.configuration = this.mocker.getInstance(YouTrackConfiguration.class);
+        when(this.configuration.getIssueCacheLifespan()).thenReturn(300);
+        when(this.configuration.getIssueCacheSize()).thenReturn(100);
+
+        Map<String, Object> entries = new HashMap<>();
+        Cache<Object> cache = mock(Cache.class);
+        doAnswer(invocation -> entries.put(invocation.getArgument(0), invocation.getArgument(1))).when(cache)
+            .set(anyString(), any());
+        when(cache.get(anyString())).thenAnswer(invocation -> entries.get(invocation.getArgument(0)));
+        doAnswer(invocation -> {
+            entries.clear();
+            return null;
+        }).when(cache).removeAll();
+
+        CacheManager cacheManager = this.mocker.registerMockComponent(CacheManager.class);
+        when(cacheManager.createNewCache(any())).thenReturn((Cache) cache);
+    }
+
+    @Test
+    public void getAndSet() throws Exception
+    {
+        YouTrackIssueCache issueCache = this.mocker.getComponentUnderTest();
+        assertTrue(issueCache.isEnabled());
+        assertNull(issueCache.get(this.server, "TEST-1", YouTrackFieldProjection.ALL));
+
+        issueCache.set(this.server, this.issue, YouTrackFieldProjection.ALL);
+
+        // Issue ids are case insensitive.
+        assertSame(this.issue, issueCache.get(this.server, "test-1", YouTrackFieldProjection.ALL));
+        // The issue fetched with all its fields doesn't hold the data of another projection.
+        assertNull(issueCache.get(this.server, "TEST-1",
+            YouTrackFieldProjection.of(Collections.singletonList(YouTrackField.SUMMARY))));
+        // Nor is it shared with another user.
+        assertNull(issueCache.get(new YouTrackServer("http://youtrack", "user", "password"), "TEST-1",
+            YouTrackFieldProjection.ALL));
+
+        issueCache.flush();
+        assertNull(issueCache.get(this.server, "TEST-1", YouTrackFieldProjection.ALL));
+    }
+
+    @Test
+    public void disabledWhenLifespanIsZero() throws Exception
+    {
+        when(this.configuration.getIssueCacheLifespan()).thenReturn(0);
+
+        YouTrackIssueCache issueCache = this.mocker.getComponentUnderTest();
+        issueCache.set(this.server, this.issue, YouTrackFieldProjection.ALL);
+
+        assertFalse(issueCache.isEnabled());
+        assertNull(issueCache.get(this.server, "TEST-1", YouTrackFieldProjection.ALL));
+    }
+
+    @Test
+    public void serverCacheLifespan() throws Exception
+    {
+        YouTrackIssueCache issueCache = this.mocker.getComponentUnderTest();
+
+        // Caching disabled for this server.
+        YouTrackServer uncachedServer = new YouTrackServer.Builder("http://youtrack").setCacheLifespan(0).build();
+        issueCache.set(uncachedServer, this.issue, YouTrackFieldProjection.ALL);
+        assertNull(issueCache.get(uncachedServer, "TEST-1", YouTrackFieldProjection.ALL));
+
+        // Shorter lifespan for this server.
+        YouTrackServer shortLivedServer = new YouTrackServer.Builder("http://youtrack").setCacheLifespan(1).build();
+        issueCache.set(shortLivedServer, this.issue, YouTrackFieldProjection.ALL);
+        assertSame(this.issue, issueCache.get(shortLivedServer, "TEST-1", YouTrackFieldProjection.ALL));
+        Thread.sleep(1100);
+        assertNull(issueCache.get(shortLivedServer, "TEST-1", YouTrackFieldProjection.ALL));
+    }
+}
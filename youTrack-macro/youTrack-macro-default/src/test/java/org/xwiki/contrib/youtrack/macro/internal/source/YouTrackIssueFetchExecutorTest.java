@@ -0,0 +1,111 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link YouTrackIssueFetchExecutor}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackIssueFetchExecutorTest
+{
+    @Rule
+    public MockitoComponentMockingRule<YouTrackIssueFetchExecutor> mocker =
+        new MockitoComponentMockingRule<>(YouTrackIssueFetchExecutor.class);
+
+    private final YouTrackServer server = new YouTrackServer("http://youtrack");
+
+    private void setParallelism(int parallelism) throws Exception
+    {
+        YouTrackConfiguration configuration = this.mocker.getInstance(YouTrackConfiguration.class);
+        when(configuration.getIssueFetchParallelism()).thenReturn(parallelism);
+    }
+
+    @Test
+    public void fetchesAreLimitedPerServer() throws Exception
+    {
+        setParallelism(2);
+        YouTrackIssueFetchExecutor fetchExecutor = this.mocker.getComponentUnderTest();
+
+        ExecutorService executor = fetchExecutor.getExecutor(this.server);
+        assertNotNull(executor);
+        assertSame(executor, fetchExecutor.getExecutor(new YouTrackServer("http://youtrack", "user", "password")));
+        assertNotSame(executor, fetchExecutor.getExecutor(new YouTrackServer("http://other")));
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<?>> fetches = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            fetches.add(executor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                running.decrementAndGet();
+                return null;
+            }));
+        }
+        for (Future<?> fetch : fetches) {
+            fetch.get();
+        }
+
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    public void sequentialWhenParallelismIsOne() throws Exception
+    {
+        setParallelism(1);
+
+        assertNull(this.mocker.getComponentUnderTest().getExecutor(this.server));
+    }
+
+    @Test
+    public void dispose() throws Exception
+    {
+        setParallelism(4);
+        YouTrackIssueFetchExecutor fetchExecutor = this.mocker.getComponentUnderTest();
+        ExecutorService executor = fetchExecutor.getExecutor(this.server);
+
+        fetchExecutor.dispose();
+
+        assertTrue(executor.isShutdown());
+        assertNull(fetchExecutor.getExecutor(this.server));
+    }
+}
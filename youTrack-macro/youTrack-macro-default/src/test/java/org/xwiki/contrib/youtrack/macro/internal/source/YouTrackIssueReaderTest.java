@@ -0,0 +1,95 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.junit.Test;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for {@link YouTrackIssueReader}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackIssueReaderTest
+{
+    private static final String ISSUE = "{\"idReadable\": \"XWIKI-1\", \"summary\": \"Summary\", \"created\": 1000,"
+        + " \"resolved\": null, \"unknown\": {\"a\": [1, 2]},"
+        + " \"reporter\": {\"fullName\": \"John Doe\", \"avatarUrl\": \"/avatar/john\"},"
+        + " \"customFields\": [{\"name\": \"State\", \"value\": {\"name\": \"Open\"}},"
+        + " {\"name\": \"Assignee\", \"value\": [{\"fullName\": \"Jane Doe\", \"avatarUrl\": \"/avatar/jane\"}]},"
+        + " {\"name\": \"Estimation\", \"value\": 42}]}";
+
+    private final YouTrackIssueReader issueReader = new YouTrackIssueReader("http://youtrack");
+
+    private ItemObject read(String json) throws IOException
+    {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            return this.issueReader.read(reader);
+        }
+    }
+
+    private void assertIssue(ItemObject issue)
+    {
+        assertEquals("XWIKI-1", issue.getId());
+        assertEquals("Summary", issue.getSummary());
+        assertEquals("http://youtrack/issue/XWIKI-1", issue.getLink());
+        assertEquals(1000L, issue.getCreatedTime());
+        assertNull(issue.getResolved());
+        assertEquals("John Doe", issue.getReporter().getFullName());
+        assertEquals("http://youtrack/avatar/john", issue.getReporter().getAvatarUrl());
+        assertEquals("Open", issue.getCustomField("state").getValue().getName());
+        assertEquals("http://youtrack/avatar/jane",
+            issue.getCustomField("Assignee").getValues().get(0).getAvatarUrl());
+        assertEquals("42", issue.getCustomField("Estimation").getValue().getName());
+    }
+
+    @Test
+    public void readFromStream() throws Exception
+    {
+        assertIssue(read(ISSUE));
+    }
+
+    @Test
+    public void readFromJsonTree()
+    {
+        assertIssue(this.issueReader.fromJsonObject(new JsonParser().parse(ISSUE).getAsJsonObject()));
+    }
+
+    @Test
+    public void repeatedValuesAreShared() throws Exception
+    {
+        ItemObject first = read(ISSUE);
+        ItemObject second = this.issueReader.fromJsonObject(new JsonParser().parse(ISSUE).getAsJsonObject());
+
+        assertSame(first.getCustomField("State").getValue().getName(),
+            second.getCustomField("State").getValue().getName());
+        assertSame(first.getReporter().getAvatarUrl(), second.getReporter().getAvatarUrl());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.YouTrackField;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link YouTrackPrefetchedIssues}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackPrefetchedIssuesTest
+{
+    @Rule
+    public MockitoComponentMockingRule<YouTrackPrefetchedIssues> mocker =
+        new MockitoComponentMockingRule<>(YouTrackPrefetchedIssues.class);
+
+    private final YouTrackServer server = new YouTrackServer("http://youtrack");
+
+    private final ItemObject issue = new ItemObject("summary", "TEST-1", null, null, null, null, null, null);
+
+    @Test
+    public void getIssuesOfTheCurrentRequest() throws Exception
+    {
+        ExecutionContext context = new ExecutionContext();
+        Execution execution = this.mocker.registerMockComponent(Execution.class);
+        when(execution.getContext()).thenReturn(context);
+        YouTrackPrefetchedIssues prefetchedIssues = this.mocker.getComponentUnderTest();
+
+        assertTrue(prefetchedIssues.isAvailable());
+        assertNull(prefetchedIssues.get(this.server, "TEST-1", YouTrackFieldProjection.ALL));
+        prefetchedIssues.put(this.server, Collections.singletonList(this.issue), YouTrackFieldProjection.ALL);
+
+        assertSame(this.issue, prefetchedIssues.get(this.server, "TEST-1", YouTrackFieldProjection.ALL));
+        // Issue ids are case insensitive.
+        assertSame(this.issue, prefetchedIssues.get(this.server, "test-1", YouTrackFieldProjection.ALL));
+        // The issue must have been fetched from the same server, with the same fields.
+        assertNull(prefetchedIssues.get(new YouTrackServer("http://other"), "TEST-1", YouTrackFieldProjection.ALL));
+        assertNull(prefetchedIssues.get(this.server, "TEST-1",
+            YouTrackFieldProjection.of(Collections.singletonList(YouTrackField.REPORTER))));
+
+        // The issues are inherited by the contexts created from the request, e.g. for asynchronous renderings.
+        ExecutionContext asyncContext = new ExecutionContext();
+        asyncContext.inheritFrom(context);
+        when(execution.getContext()).thenReturn(asyncContext);
+        assertSame(this.issue, prefetchedIssues.get(this.server, "TEST-1", YouTrackFieldProjection.ALL));
+
+        // And forgotten with the request.
+        when(execution.getContext()).thenReturn(new ExecutionContext());
+        assertNull(prefetchedIssues.get(this.server, "TEST-1", YouTrackFieldProjection.ALL));
+    }
+
+    @Test
+    public void nothingIsKeptWithoutExecution() throws Exception
+    {
+        YouTrackPrefetchedIssues prefetchedIssues = this.mocker.getComponentUnderTest();
+
+        assertFalse(prefetchedIssues.isAvailable());
+        prefetchedIssues.put(this.server, Collections.singletonList(this.issue), YouTrackFieldProjection.ALL);
+        assertNull(prefetchedIssues.get(this.server, "TEST-1", YouTrackFieldProjection.ALL));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.internal.source.jsonData.ItemObject;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link YouTrackQueryCache}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackQueryCacheTest
+{
+    @Rule
+    public MockitoComponentMockingRule<YouTrackQueryCache> mocker =
+        new MockitoComponentMockingRule<>(YouTrackQueryCache.class);
+
+    private final YouTrackServer server = new YouTrackServer("http://youtrack");
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private YouTrackConfiguration configuration;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception
+    {
+        this.configuration = this.mocker.getInstance(YouTrackConfiguration.class);
+        when(this.configuration.getQueryCacheLifespan()).thenReturn(300);
+        when(this.configuration.getQueryCacheMaxStale()).thenReturn(600);
+        when(this.configuration.getQueryCacheSize()).thenReturn(100);
+
+        Map<String, Object> entries = new HashMap<>();
+        Cache<Object> cache = mock(Cache.class);
+        doAnswer(invocation -> entries.put(invocation.getArgument(0), invocation.getArgument(1))).when(cache)
+            .set(anyString(), any());
+        when(cache.get(anyString())).thenAnswer(invocation -> entries.get(invocation.getArgument(0)));
+
+        CacheManager cacheManager = this.mocker.registerMockComponent(CacheManager.class);
+        when(cacheManager.createNewCache(any())).thenReturn((Cache) cache);
+    }
+
+    @Test
+    public void getFreshResult() throws Exception
+    {
+        YouTrackQueryCache queryCache = this.mocker.getComponentUnderTest();
+
+        List<ItemObject> result = get(queryCache, this.server, "project: TEST  #Unresolved");
+        assertEquals("TEST-1", result.get(0).getId());
+        assertEquals(result, get(queryCache, this.server, " project: TEST #Unresolved "));
+        assertEquals(1, this.loads.get());
+
+        // Caching disabled for this server.
+        YouTrackServer uncachedServer = new YouTrackServer.Builder("http://youtrack").setCacheLifespan(0).build();
+        get(queryCache, uncachedServer, "project: TEST #Unresolved");
+        get(queryCache, uncachedServer, "project: TEST #Unresolved");
+        assertEquals(3, this.loads.get());
+    }
+
+    @Test
+    public void whiteSpacesInQuotedValuesAreKept() throws Exception
+    {
+        YouTrackQueryCache queryCache = this.mocker.getComponentUnderTest();
+
+        get(queryCache, this.server, "summary: \"a  b\"");
+        get(queryCache, this.server, "summary:  \"a  b\"");
+        assertEquals(1, this.loads.get());
+
+        get(queryCache, this.server, "summary: \"a b\"");
+        get(queryCache, this.server, "State: {In  Progress}");
+        get(queryCache, this.server, "State: {In Progress}");
+        assertEquals(4, this.loads.get());
+    }
+
+    @Test
+    public void getStaleResultWhileRefreshing() throws Exception
+    {
+        when(this.configuration.getQueryCacheLifespan()).thenReturn(1);
+        YouTrackQueryCache queryCache = this.mocker.getComponentUnderTest();
+
+        assertEquals("TEST-1", get(queryCache, this.server, "#Unresolved").get(0).getId());
+        Thread.sleep(1100);
+
+        // The expired result is served right away, and refreshed in the background.
+        CountDownLatch refreshed = new CountDownLatch(1);
+        List<ItemObject> stale = queryCache.get(this.server, "#Unresolved", 10, YouTrackFieldProjection.ALL, () -> {
+            refreshed.countDown();
+            return Collections.singletonList(issue("TEST-2"));
+        });
+        assertEquals("TEST-1", stale.get(0).getId());
+        assertTrue(refreshed.await(10, TimeUnit.SECONDS));
+
+        long timeout = System.currentTimeMillis() + 10000;
+        List<ItemObject> result;
+        do {
+            result = get(queryCache, this.server, "#Unresolved");
+        } while (!"TEST-2".equals(result.get(0).getId()) && System.currentTimeMillis() < timeout);
+        assertEquals("TEST-2", result.get(0).getId());
+    }
+
+    @Test
+    public void staleResultIsNotRefreshedWhenTheServerIsUnavailable() throws Exception
+    {
+        when(this.configuration.getQueryCacheLifespan()).thenReturn(1);
+        YouTrackCircuitBreaker circuitBreaker = this.mocker.getInstance(YouTrackCircuitBreaker.class);
+        when(circuitBreaker.isOpen(this.server)).thenReturn(true);
+        YouTrackQueryCache queryCache = this.mocker.getComponentUnderTest();
+
+        get(queryCache, this.server, "#Unresolved");
+        Thread.sleep(1100);
+        assertEquals("TEST-1", get(queryCache, this.server, "#Unresolved").get(0).getId());
+        assertEquals(1, this.loads.get());
+    }
+
+    private List<ItemObject> get(YouTrackQueryCache queryCache, YouTrackServer youTrackServer, String query)
+        throws Exception
+    {
+        return queryCache.get(youTrackServer, query, 10, YouTrackFieldProjection.ALL, () -> {
+            this.loads.incrementAndGet();
+            return Collections.singletonList(issue("TEST-1"));
+        });
+    }
+
+    private ItemObject issue(String id)
+    {
+        return new ItemObject("summary", id, null, null, null, Collections.emptyList(), null, null);
+    }
+}
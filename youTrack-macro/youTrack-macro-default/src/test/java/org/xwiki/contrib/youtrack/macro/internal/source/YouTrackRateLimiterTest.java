@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link YouTrackRateLimiter}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackRateLimiterTest
+{
+    @Rule
+    public MockitoComponentMockingRule<YouTrackRateLimiter> mocker =
+        new MockitoComponentMockingRule<>(YouTrackRateLimiter.class);
+
+    @Test
+    public void burstThenRejectWhenTheWaitIsTooLong() throws Exception
+    {
+        YouTrackServer server = new YouTrackServer.Builder("http://youtrack").setRequestRate(10).setRequestBurst(2)
+            .setConnectionRequestTimeout(50).build();
+        YouTrackRateLimiter rateLimiter = this.mocker.getComponentUnderTest();
+
+        long start = System.nanoTime();
+        assertTrue(rateLimiter.acquire(server));
+        assertTrue(rateLimiter.acquire(server));
+        assertTrue(System.nanoTime() - start < 50_000_000L);
+
+        // The next token is available in 100 ms, which is more than the connection request timeout.
+        assertFalse(rateLimiter.acquire(server));
+        YouTrackStatistics statistics = this.mocker.getInstance(YouTrackStatistics.class);
+        verify(statistics).increment(server, YouTrackStatistics.RATE_LIMITED);
+    }
+
+    @Test
+    public void waitForTheNextToken() throws Exception
+    {
+        YouTrackServer server = new YouTrackServer.Builder("http://youtrack").setRequestRate(10).setRequestBurst(1)
+            .setConnectionRequestTimeout(1000).build();
+        YouTrackRateLimiter rateLimiter = this.mocker.getComponentUnderTest();
+
+        assertTrue(rateLimiter.acquire(server));
+        long start = System.nanoTime();
+        assertTrue(rateLimiter.acquire(server));
+        assertTrue(rateLimiter.acquire(server));
+        // The 2 requests have to wait for the tokens refilled at 10 requests per second.
+        assertTrue(System.nanoTime() - start >= 150_000_000L);
+        YouTrackStatistics statistics = this.mocker.getInstance(YouTrackStatistics.class);
+        verify(statistics, times(2)).increment(server, YouTrackStatistics.DELAYED);
+    }
+
+    @Test
+    public void bucketIsReplacedWhenTheServerIsModified() throws Exception
+    {
+        YouTrackServer server = new YouTrackServer.Builder("http://youtrack").setRequestRate(1).setRequestBurst(1)
+            .setConnectionRequestTimeout(50).build();
+        YouTrackRateLimiter rateLimiter = this.mocker.getComponentUnderTest();
+
+        assertTrue(rateLimiter.acquire(server));
+        assertFalse(rateLimiter.acquire(server));
+
+        // The new settings apply right away, with a full bucket.
+        YouTrackServer modifiedServer = new YouTrackServer.Builder("http://youtrack").setRequestRate(1)
+            .setRequestBurst(3).setConnectionRequestTimeout(50).build();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimiter.acquire(modifiedServer));
+        }
+        assertFalse(rateLimiter.acquire(modifiedServer));
+    }
+
+    @Test
+    public void notLimited() throws Exception
+    {
+        YouTrackServer server = new YouTrackServer.Builder("http://youtrack").setConnectionRequestTimeout(1).build();
+        YouTrackRateLimiter rateLimiter = this.mocker.getComponentUnderTest();
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(rateLimiter.acquire(server));
+        }
+    }
+
+    @Test
+    public void getMaxWait() throws Exception
+    {
+        YouTrackRateLimiter rateLimiter = this.mocker.getComponentUnderTest();
+
+        YouTrackServer.Builder builder = new YouTrackServer.Builder("http://youtrack");
+        assertEquals(50, rateLimiter.getMaxWait(builder.setConnectionRequestTimeout(50).build()));
+        // The requests never wait indefinitely.
+        assertEquals(10000, rateLimiter.getMaxWait(builder.setConnectionRequestTimeout(0).build()));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source;
+
+import com.google.gson.stream.MalformedJsonException;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link YouTrackRetryPolicy}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackRetryPolicyTest
+{
+    @Rule
+    public MockitoComponentMockingRule<YouTrackRetryPolicy> mocker =
+        new MockitoComponentMockingRule<>(YouTrackRetryPolicy.class);
+
+    private final YouTrackServer server = new YouTrackServer("http://youtrack");
+
+    private YouTrackConfiguration configuration;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.configuration = this.mocker.getInstance(YouTrackConfiguration.class);
+        when(this.configuration.getRetryMaxAttempts()).thenReturn(3);
+        when(this.configuration.getRetryDelay()).thenReturn(100);
+        when(this.configuration.getRetryDeadline()).thenReturn(10000);
+    }
+
+    @Test
+    public void transientErrorsAreRetriedWithBackoff() throws Exception
+    {
+        YouTrackRetryPolicy retryPolicy = this.mocker.getComponentUnderTest();
+        long deadline = retryPolicy.getDeadline();
+
+        for (int i = 0; i < 10; i++) {
+            for (Exception error : Arrays.asList(new ConnectException(), new NoHttpResponseException("no response"),
+                new SocketException(), new UnknownHostException())) {
+                long delay = retryPolicy.getRetryDelay(this.server, error, 1, deadline);
+                assertTrue(delay >= 0 && delay <= 100);
+            }
+            long delay;
+            delay = retryPolicy.getRetryDelay(this.server, new YouTrackResponseException("error", 503), 2, deadline);
+            assertTrue(delay >= 0 && delay <= 200);
+            delay = retryPolicy.getRetryDelay(this.server, new YouTrackResponseException("error", 429), 2, deadline);
+            assertTrue(delay >= 0 && delay <= 200);
+        }
+    }
+
+    @Test
+    public void otherErrorsAreNotRetried() throws Exception
+    {
+        YouTrackRetryPolicy retryPolicy = this.mocker.getComponentUnderTest();
+        long deadline = retryPolicy.getDeadline();
+
+        assertEquals(YouTrackRetryPolicy.NO_RETRY,
+            retryPolicy.getRetryDelay(this.server, new YouTrackResponseException("error", 404), 1, deadline));
+        assertEquals(YouTrackRetryPolicy.NO_RETRY,
+            retryPolicy.getRetryDelay(this.server, new YouTrackResponseException("error", 500), 1, deadline));
+        // The server is already slow.
+        assertEquals(YouTrackRetryPolicy.NO_RETRY,
+            retryPolicy.getRetryDelay(this.server, new SocketTimeoutException(), 1, deadline));
+        assertEquals(YouTrackRetryPolicy.NO_RETRY,
+            retryPolicy.getRetryDelay(this.server, new ConnectTimeoutException(), 1, deadline));
+        assertEquals(YouTrackRetryPolicy.NO_RETRY,
+            retryPolicy.getRetryDelay(this.server, new Exception(), 1, deadline));
+        // The request failed locally and would fail again.
+        for (Exception error : Arrays.asList(new IOException(), new InterruptedIOException(),
+            new MalformedURLException(), new MalformedJsonException("malformed"),
+            new ConnectionPoolTimeoutException())) {
+            assertEquals(YouTrackRetryPolicy.NO_RETRY, retryPolicy.getRetryDelay(this.server, error, 1, deadline));
+        }
+    }
+
+    @Test
+    public void retryAfter() throws Exception
+    {
+        YouTrackRetryPolicy retryPolicy = this.mocker.getComponentUnderTest();
+        long deadline = retryPolicy.getDeadline();
+
+        assertEquals(2000,
+            retryPolicy.getRetryDelay(this.server, new YouTrackResponseException("error", 429, " 2 "), 1, deadline));
+
+        String date = DateUtils.formatDate(new Date(System.currentTimeMillis() + 5000));
+        long delay = retryPolicy.getRetryDelay(this.server, new YouTrackResponseException("error", 503, date), 1,
+            deadline);
+        // The HTTP dates are precise to the second.
+        assertTrue(delay > 3000 && delay <= 5000);
+
+        // The requested delay goes past the deadline.
+        assertEquals(YouTrackRetryPolicy.NO_RETRY,
+            retryPolicy.getRetryDelay(this.server, new YouTrackResponseException("error", 429, "20"), 1, deadline));
+    }
+
+    @Test
+    public void maxAttemptsAndDeadline() throws Exception
+    {
+        YouTrackRetryPolicy retryPolicy = this.mocker.getComponentUnderTest();
+
+        assertEquals(YouTrackRetryPolicy.NO_RETRY,
+            retryPolicy.getRetryDelay(this.server, new ConnectException(), 3, retryPolicy.getDeadline()));
+        assertEquals(YouTrackRetryPolicy.NO_RETRY,
+            retryPolicy.getRetryDelay(this.server, new YouTrackResponseException("error", 429, "0"), 1,
+                System.currentTimeMillis() - 1));
+        assertEquals(10000, retryPolicy.getRetryDuration());
+
+        when(this.configuration.getRetryMaxAttempts()).thenReturn(1);
+        assertEquals(YouTrackRetryPolicy.NO_RETRY,
+            retryPolicy.getRetryDelay(this.server, new ConnectException(), 1, retryPolicy.getDeadline()));
+        assertEquals(0, retryPolicy.getRetryDuration());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.macro.internal.source.jsonData;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for {@link ItemObject}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class ItemObjectTest
+{
+    private final ItemObject issue = new ItemObject("summary", "XWIKI-1", "1000", null, "2000",
+        Collections.singletonList(new CustomFields("State", new ValueObject("Open", null, null), null)), null,
+        "http://youtrack/issue/XWIKI-1");
+
+    @Test
+    public void withoutNote()
+    {
+        assertSame(this.issue, this.issue.withNote(null));
+        assertSame(this.issue, this.issue.withNote(""));
+    }
+
+    @Test
+    public void withNote()
+    {
+        ItemObject issueWithNote = this.issue.withNote("note");
+
+        assertNotSame(this.issue, issueWithNote);
+        assertEquals("note", issueWithNote.getNote());
+        assertNull(this.issue.getNote());
+        assertEquals("XWIKI-1", issueWithNote.getId());
+        assertEquals(1000L, issueWithNote.getUpdatedTime());
+        assertEquals(ItemObject.NO_DATE, issueWithNote.getResolvedTime());
+        assertEquals(2000L, issueWithNote.getCreatedTime());
+        assertSame(this.issue.getCustomField("state"), issueWithNote.getCustomField("STATE"));
+
+        // Removing the note from a copy creates another copy, the original issue is left untouched.
+        ItemObject issueWithoutNote = issueWithNote.withNote(null);
+        assertNull(issueWithoutNote.getNote());
+        assertEquals("note", issueWithNote.getNote());
+    }
+}
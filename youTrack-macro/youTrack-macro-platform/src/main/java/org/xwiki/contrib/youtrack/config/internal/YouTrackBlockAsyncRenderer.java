@@ -19,9 +19,11 @@
  */
 package org.xwiki.contrib.youtrack.config.internal;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.YouTrackField;
 import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
 import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackServerResolver;
 import org.xwiki.model.reference.DocumentReference;
@@ -43,6 +45,8 @@ import org.xwiki.rendering.util.ErrorBlockGenerator;
 import javax.inject.Inject;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Render the YouTrack macro content asynchronously.
@@ -57,6 +61,8 @@ public class YouTrackBlockAsyncRenderer extends AbstractBlockAsyncRenderer
 
     private static final String ESCAPE_CHAR_BACKSLASH = "-";
 
+    private static final char SEPARATOR = '\n';
+
     @Inject
     private DocumentReferenceResolver<String> resolver;
 
@@ -69,6 +75,9 @@ public class YouTrackBlockAsyncRenderer extends AbstractBlockAsyncRenderer
     @Inject
     private YouTrackServerResolver youTrackServerResolver;
 
+    @Inject
+    private YouTrackRenderingCache renderingCache;
+
     private List<String> id;
 
     private boolean inline;
@@ -87,6 +96,8 @@ public class YouTrackBlockAsyncRenderer extends AbstractBlockAsyncRenderer
 
     private boolean isAsync;
 
+    private boolean isCached;
+
     void initialize(AsyncYouTrackMacro macro, YouTrackMacroParameters parameters, String content, boolean isAsync,
                     MacroTransformationContext context)
     {
@@ -94,6 +105,7 @@ public class YouTrackBlockAsyncRenderer extends AbstractBlockAsyncRenderer
         this.parameters = parameters;
         this.content = content;
         this.isAsync = isAsync;
+        this.isCached = isAsync && this.renderingCache.isEnabled();
         this.context = context;
 
         this.inline = context.isInline();
@@ -110,7 +122,15 @@ public class YouTrackBlockAsyncRenderer extends AbstractBlockAsyncRenderer
     @Override
     protected Block execute(boolean async, boolean cached)
     {
+        if (this.isCached) {
+            Block cachedResult = this.renderingCache.get(this.id);
+            if (cachedResult != null) {
+                return cachedResult;
+            }
+        }
+
         List<Block> resultBlocks;
+        boolean failed = false;
 
         if (this.sourceReference != null) {
             // Invalidate the cache when the document containing the macro call is modified
@@ -122,11 +142,16 @@ public class YouTrackBlockAsyncRenderer extends AbstractBlockAsyncRenderer
             // Display the error in the result
             resultBlocks = this.errorBlockGenerator.generateErrorBlocks("Failed to execute the YouTrack macro", e,
                 this.inline);
+            failed = true;
         }
 
         resultBlocks = Arrays.asList(wrapInMacroMarker(this.context.getCurrentMacroBlock(), resultBlocks));
 
-        return new CompositeBlock(resultBlocks);
+        Block result = new CompositeBlock(resultBlocks);
+        if (this.isCached && !failed) {
+            this.renderingCache.set(this.id, this.sourceReference, result);
+        }
+        return result;
     }
 
     @Override
@@ -156,6 +181,7 @@ public class YouTrackBlockAsyncRenderer extends AbstractBlockAsyncRenderer
     @Override
     public boolean isCacheAllowed()
     {
+        // The rendered result is cached by the YouTrackRenderingCache, which expires it after its lifespan
         return false;
     }
 
@@ -198,9 +224,36 @@ public class YouTrackBlockAsyncRenderer extends AbstractBlockAsyncRenderer
             youTrackURL = this.parameters.getId();
         }
 
+        if (this.isCached) {
+            // The cached result must be specific to everything impacting the displayed result.
+            return createId("rendering", "macro", "YouTrack", escapedSource, index, youTrackURL, username,
+                computeDisplayHash());
+        }
+
         return createId("rendering", "macro", "YouTrack", escapedSource, index, youTrackURL, username);
     }
 
+    /**
+     * @return a hash of the macro content and of the macro parameters impacting the displayed result
+     */
+    private String computeDisplayHash()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(this.parameters.getSource()).append(SEPARATOR);
+        builder.append(this.parameters.getStyle()).append(SEPARATOR);
+        builder.append(this.parameters.getMaxCount()).append(SEPARATOR);
+        for (YouTrackField field : this.parameters.getFields()) {
+            builder.append(field).append(SEPARATOR);
+        }
+        // Sort the extra parameters so that their order doesn't matter.
+        for (Map.Entry<Object, Object> parameter : new TreeMap<>(this.parameters.getParameters()).entrySet()) {
+            builder.append(parameter.getKey()).append('=').append(parameter.getValue()).append(SEPARATOR);
+        }
+        builder.append(this.content);
+
+        return DigestUtils.sha256Hex(builder.toString());
+    }
+
     private String getCurrentSource(MacroTransformationContext context)
     {
         String currentSource = null;
@@ -0,0 +1,214 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.config.internal;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.event.AbstractCacheEntryListener;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.block.Block;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the rendered result of the asynchronous YouTrack macros during
+ * {@link YouTrackConfiguration#getRenderingCacheLifespan()} seconds, when the rendering cache is enabled.
+ * <p>
+ * Each entry expires on its own, its lifespan being counted from the moment it was rendered. The asynchronous
+ * rendering cache of the platform is not used since its entries are only evicted when the document containing the
+ * macro is modified. Entries are evicted in that case too (see {@link #invalidate(DocumentReference)}), as well as
+ * when the YouTrack servers are modified (see {@link #flush()}).
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component(roles = {YouTrackRenderingCache.class})
+@Singleton
+public class YouTrackRenderingCache implements Initializable, Disposable
+{
+    private static final class CachedRendering
+    {
+        private final DocumentReference source;
+
+        private final Block result;
+
+        CachedRendering(DocumentReference source, Block result)
+        {
+            this.source = source;
+            this.result = result;
+        }
+    }
+
+    private static final String CACHE_ID = "youtrack.rendering";
+
+    /**
+     * The maximum number of rendered macros kept in memory.
+     */
+    private static final int CACHE_SIZE = 1000;
+
+    private static final String ID_SEPARATOR = "/";
+
+    @Inject
+    private YouTrackConfiguration configuration;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    private Cache<CachedRendering> cache;
+
+    /**
+     * The keys of the cached renderings, indexed by the document containing the rendered macro.
+     */
+    private final Map<DocumentReference, Set<String>> keysBySource = new ConcurrentHashMap<>();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int lifespan = this.configuration.getRenderingCacheLifespan();
+        if (this.configuration.isRenderingCacheEnabled() && lifespan > 0) {
+            CacheConfiguration cacheConfiguration = new CacheConfiguration(CACHE_ID);
+            LRUEvictionConfiguration lru = new LRUEvictionConfiguration();
+            lru.setMaxEntries(CACHE_SIZE);
+            lru.setLifespan(lifespan);
+            cacheConfiguration.put(LRUEvictionConfiguration.CONFIGURATIONID, lru);
+            try {
+                this.cache = this.cacheManager.createNewCache(cacheConfiguration);
+            } catch (CacheException e) {
+                throw new InitializationException("Failed to create the YouTrack rendering cache", e);
+            }
+            // Forget the keys of the renderings which expired or were evicted.
+            this.cache.addCacheEntryListener(new AbstractCacheEntryListener<CachedRendering>()
+            {
+                @Override
+                public void cacheEntryRemoved(CacheEntryEvent<CachedRendering> event)
+                {
+                    CachedRendering rendering = event.getEntry().getValue();
+                    if (rendering != null && rendering.source != null) {
+                        removeKey(rendering.source, event.getEntry().getKey());
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * @return true if the rendered macros are cached, false if the cache is disabled
+     */
+    public boolean isEnabled()
+    {
+        return this.cache != null;
+    }
+
+    /**
+     * @param id the id of the rendered macro, specific to everything impacting the displayed result
+     * @return a copy of the cached result, or {@code null} if it's not in cache (or expired)
+     */
+    public Block get(List<String> id)
+    {
+        if (this.cache == null) {
+            return null;
+        }
+        CachedRendering rendering = this.cache.get(createKey(id));
+        // The returned blocks end up in the XDOM of the rendered document, which modifies them.
+        return rendering != null ? rendering.result.clone() : null;
+    }
+
+    /**
+     * @param id the id of the rendered macro, specific to everything impacting the displayed result
+     * @param source the document containing the rendered macro, or {@code null} if it's not known
+     * @param result the rendered result
+     */
+    public void set(List<String> id, DocumentReference source, Block result)
+    {
+        if (this.cache != null) {
+            String key = createKey(id);
+            // Index the key before caching the result so that an invalidation can't miss it.
+            if (source != null) {
+                this.keysBySource.compute(source, (reference, keys) -> {
+                    Set<String> sourceKeys = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                    sourceKeys.add(key);
+                    return sourceKeys;
+                });
+            }
+            this.cache.set(key, new CachedRendering(source, result.clone()));
+        }
+    }
+
+    /**
+     * Remove the cached renderings of the macros contained in the passed document.
+     *
+     * @param source the modified or deleted document
+     */
+    public void invalidate(DocumentReference source)
+    {
+        Set<String> keys = this.keysBySource.remove(source);
+        if (keys != null && this.cache != null) {
+            for (String key : keys) {
+                this.cache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Remove all the cached renderings.
+     */
+    public void flush()
+    {
+        if (this.cache != null) {
+            this.cache.removeAll();
+        }
+        this.keysBySource.clear();
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (this.cache != null) {
+            this.cache.dispose();
+        }
+    }
+
+    private String createKey(List<String> id)
+    {
+        return String.join(ID_SEPARATOR, id);
+    }
+
+    private void removeKey(DocumentReference source, String key)
+    {
+        this.keysBySource.computeIfPresent(source, (reference, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.config.internal;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.youtrack.config.YouTrackServersChangedEvent;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+/**
+ * Evicts the cached renderings of the YouTrack macros contained in a document when it's modified or deleted, and all
+ * of them when YouTrack servers are modified or removed.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component
+@Named(YouTrackRenderingCacheListener.NAME)
+@Singleton
+public class YouTrackRenderingCacheListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "YouTrackRenderingCacheListener";
+
+    @Inject
+    private Provider<YouTrackRenderingCache> renderingCacheProvider;
+
+    /**
+     * Default constructor.
+     */
+    public YouTrackRenderingCacheListener()
+    {
+        super(NAME, new DocumentUpdatedEvent(), new DocumentDeletedEvent(), new YouTrackServersChangedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof YouTrackServersChangedEvent) {
+            // The cache keys only contain the URL of the servers, which is not enough to find their renderings.
+            this.renderingCacheProvider.get().flush();
+        } else {
+            this.renderingCacheProvider.get().invalidate(((XWikiDocument) source).getDocumentReference());
+        }
+    }
+}
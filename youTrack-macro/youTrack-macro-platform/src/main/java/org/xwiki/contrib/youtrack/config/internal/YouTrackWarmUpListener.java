@@ -0,0 +1,129 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.config.internal;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.xwiki.bridge.event.ApplicationReadyEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.YouTrackDataSource;
+import org.xwiki.contrib.youtrack.macro.internal.source.AbstractYouTrackDataSource;
+import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackFieldProjection;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sends a small request to each YouTrack server configured in the main wiki once the wiki is started (when
+ * {@link YouTrackConfiguration#isWarmUpEnabled()} is true), so that the first pages displaying YouTrack issues don't
+ * have to pay for opening the connections and loading the code used to fetch and parse the issues. This also reports
+ * early the servers which are unreachable or whose credentials are wrong.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+@Component
+@Named(YouTrackWarmUpListener.NAME)
+@Singleton
+public class YouTrackWarmUpListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "YouTrackWarmUpListener";
+
+    private static final String SEARCH_SOURCE = "search";
+
+    @Inject
+    private YouTrackConfiguration configuration;
+
+    @Inject
+    private ComponentManager componentManager;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * Default constructor.
+     */
+    public YouTrackWarmUpListener()
+    {
+        super(NAME, new ApplicationReadyEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (!this.configuration.isWarmUpEnabled()) {
+            return;
+        }
+
+        // Read the configuration now since it requires the XWiki context, which is not available in the thread
+        // doing the warm-up. Servers defined several times (with different ids) are only called once.
+        Map<Pair<String, String>, YouTrackServer> youTrackServers = new LinkedHashMap<>();
+        for (YouTrackServer youTrackServer : this.configuration.getYouTrackServers().values()) {
+            youTrackServers.putIfAbsent(
+                new ImmutablePair<>(youTrackServer.getURL(), youTrackServer.getUsername()), youTrackServer);
+        }
+        if (youTrackServers.isEmpty()) {
+            return;
+        }
+
+        AbstractYouTrackDataSource dataSource;
+        try {
+            dataSource = (AbstractYouTrackDataSource) this.componentManager.getInstance(YouTrackDataSource.class,
+                SEARCH_SOURCE);
+        } catch (ComponentLookupException | ClassCastException e) {
+            this.logger.warn("Failed to warm up the YouTrack servers. Root cause: [{}]", e.getMessage());
+            return;
+        }
+
+        // Don't delay the wiki startup.
+        Thread thread = new Thread(() -> warmUp(youTrackServers.values(), dataSource), "YouTrack warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void warmUp(Iterable<YouTrackServer> youTrackServers, AbstractYouTrackDataSource dataSource)
+    {
+        for (YouTrackServer youTrackServer : youTrackServers) {
+            long start = System.currentTimeMillis();
+            try {
+                // Fetch a single issue with all its fields, to also warm up the parsing code.
+                dataSource.getIssuesByJQL(youTrackServer, "", 1, YouTrackFieldProjection.ALL);
+                this.logger.info("Warmed up the YouTrack server [{}] in [{}] ms", youTrackServer.getURL(),
+                    System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                this.logger.warn("Failed to warm up the YouTrack server [{}] after [{}] ms. Root cause: [{}]",
+                    youTrackServer.getURL(), System.currentTimeMillis() - start, e.getMessage());
+            }
+        }
+    }
+}
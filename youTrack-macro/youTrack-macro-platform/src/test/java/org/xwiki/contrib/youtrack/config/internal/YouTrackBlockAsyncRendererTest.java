@@ -0,0 +1,173 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.config.internal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.macro.YouTrackMacroParameters;
+import org.xwiki.contrib.youtrack.macro.internal.source.YouTrackServerResolver;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.MetaDataBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.macro.MacroExecutionException;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.MacroTransformationContext;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link YouTrackBlockAsyncRenderer}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackBlockAsyncRendererTest
+{
+    private static final String SOURCE = "wiki:Space.Page";
+
+    @Rule
+    public MockitoComponentMockingRule<YouTrackBlockAsyncRenderer> mocker =
+        new MockitoComponentMockingRule<>(YouTrackBlockAsyncRenderer.class);
+
+    private final DocumentReference page = new DocumentReference("wiki", "Space", "Page");
+
+    private final AsyncYouTrackMacro macro = mock(AsyncYouTrackMacro.class);
+
+    private YouTrackRenderingCache renderingCache;
+
+    private YouTrackServerResolver serverResolver;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        DocumentReferenceResolver<String> resolver =
+            this.mocker.getInstance(new DefaultParameterizedType(null, DocumentReferenceResolver.class, String.class));
+        when(resolver.resolve(SOURCE)).thenReturn(this.page);
+
+        this.serverResolver = this.mocker.getInstance(YouTrackServerResolver.class);
+        when(this.serverResolver.resolve(any())).thenReturn(new YouTrackServer("http://youtrack"));
+
+        this.renderingCache = this.mocker.getInstance(YouTrackRenderingCache.class);
+        when(this.renderingCache.isEnabled()).thenReturn(true);
+    }
+
+    @Test
+    public void idDependsOnTheDisplayedResult() throws Exception
+    {
+        YouTrackMacroParameters parameters = new YouTrackMacroParameters();
+        List<String> id = createRenderer(parameters, "TEST-1").getId();
+        assertEquals(id, createRenderer(parameters, "TEST-1").getId());
+
+        assertNotEquals(id, createRenderer(parameters, "TEST-2").getId());
+
+        YouTrackMacroParameters enumParameters = new YouTrackMacroParameters();
+        enumParameters.setStyle("enum");
+        assertNotEquals(id, createRenderer(enumParameters, "TEST-1").getId());
+
+        // Different users can see different issues.
+        when(this.serverResolver.resolve(any())).thenReturn(new YouTrackServer("http://youtrack", "user", "pass"));
+        assertNotEquals(id, createRenderer(parameters, "TEST-1").getId());
+    }
+
+    @Test
+    public void idWhenRenderingCacheIsDisabled() throws Exception
+    {
+        when(this.renderingCache.isEnabled()).thenReturn(false);
+        YouTrackMacroParameters parameters = new YouTrackMacroParameters();
+
+        // The id only has to identify the macro in the page.
+        assertEquals(createRenderer(parameters, "TEST-1").getId(), createRenderer(parameters, "TEST-2").getId());
+    }
+
+    @Test
+    public void cachedRenderingIsReused() throws Exception
+    {
+        YouTrackBlockAsyncRenderer renderer = createRenderer(new YouTrackMacroParameters(), "TEST-1");
+        Block cachedResult = new WordBlock("cached");
+        when(this.renderingCache.get(renderer.getId())).thenReturn(cachedResult);
+
+        assertSame(cachedResult, renderer.execute(true, false));
+        verify(this.macro, never()).executeCodeMacro(any(), any(), any());
+    }
+
+    @Test
+    public void renderingIsCachedWithItsSource() throws Exception
+    {
+        YouTrackMacroParameters parameters = new YouTrackMacroParameters();
+        YouTrackBlockAsyncRenderer renderer = createRenderer(parameters, "TEST-1");
+        when(this.macro.executeCodeMacro(eq(parameters), eq("TEST-1"), any()))
+            .thenReturn(Collections.singletonList(new WordBlock("TEST-1")));
+
+        Block result = renderer.execute(true, false);
+
+        verify(this.renderingCache).set(renderer.getId(), this.page, result);
+    }
+
+    @Test
+    public void failedRenderingIsNotCached() throws Exception
+    {
+        YouTrackMacroParameters parameters = new YouTrackMacroParameters();
+        YouTrackBlockAsyncRenderer renderer = createRenderer(parameters, "TEST-1");
+        when(this.macro.executeCodeMacro(eq(parameters), eq("TEST-1"), any()))
+            .thenThrow(new MacroExecutionException("error"));
+
+        renderer.execute(true, false);
+
+        verify(this.renderingCache, never()).set(any(), any(), any());
+    }
+
+    private YouTrackBlockAsyncRenderer createRenderer(YouTrackMacroParameters parameters, String content)
+        throws Exception
+    {
+        MacroBlock macroBlock = new MacroBlock("youtrack", Collections.emptyMap(), content, false);
+        XDOM xdom = new XDOM(Arrays.asList(new MetaDataBlock(Arrays.asList(macroBlock), MetaData.SOURCE, SOURCE)));
+        TransformationContext transformationContext = new TransformationContext(xdom, Syntax.XWIKI_2_1);
+        transformationContext.setTargetSyntax(Syntax.XHTML_1_0);
+        MacroTransformationContext context = new MacroTransformationContext(transformationContext);
+        context.setXDOM(xdom);
+        context.setCurrentMacroBlock(macroBlock);
+
+        YouTrackBlockAsyncRenderer renderer = this.mocker.getComponentUnderTest();
+        renderer.initialize(this.macro, parameters, content, true, context);
+        return renderer;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.config.internal;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.contrib.youtrack.config.YouTrackServer;
+import org.xwiki.contrib.youtrack.config.YouTrackServersChangedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import javax.inject.Provider;
+import java.util.Collections;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link YouTrackRenderingCacheListener}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackRenderingCacheListenerTest
+{
+    @Rule
+    public MockitoComponentMockingRule<YouTrackRenderingCacheListener> mocker =
+        new MockitoComponentMockingRule<>(YouTrackRenderingCacheListener.class);
+
+    private final DocumentReference page = new DocumentReference("wiki", "Space", "Page");
+
+    private final YouTrackRenderingCache renderingCache = mock(YouTrackRenderingCache.class);
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Provider<YouTrackRenderingCache> renderingCacheProvider =
+            this.mocker.getInstance(new DefaultParameterizedType(null, Provider.class, YouTrackRenderingCache.class));
+        when(renderingCacheProvider.get()).thenReturn(this.renderingCache);
+    }
+
+    @Test
+    public void invalidateTheModifiedDocument() throws Exception
+    {
+        this.mocker.getComponentUnderTest().onEvent(new DocumentUpdatedEvent(), new XWikiDocument(this.page), null);
+        this.mocker.getComponentUnderTest().onEvent(new DocumentDeletedEvent(), new XWikiDocument(this.page), null);
+
+        verify(this.renderingCache, times(2)).invalidate(this.page);
+        verify(this.renderingCache, never()).flush();
+    }
+
+    @Test
+    public void flushWhenTheServersChange() throws Exception
+    {
+        this.mocker.getComponentUnderTest().onEvent(new YouTrackServersChangedEvent(), "wiki",
+            Collections.singletonList(new YouTrackServer("http://youtrack")));
+
+        verify(this.renderingCache).flush();
+    }
+}
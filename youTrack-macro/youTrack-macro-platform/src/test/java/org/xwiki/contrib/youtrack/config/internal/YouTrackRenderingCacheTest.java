@@ -0,0 +1,179 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.youtrack.config.internal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheEntry;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
+import org.xwiki.contrib.youtrack.config.YouTrackConfiguration;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link YouTrackRenderingCache}.
+ *
+ * @version $Id$
+ * @since 1.1
+ */
+public class YouTrackRenderingCacheTest
+{
+    @Rule
+    public MockitoComponentMockingRule<YouTrackRenderingCache> mocker =
+        new MockitoComponentMockingRule<>(YouTrackRenderingCache.class);
+
+    private final DocumentReference page = new DocumentReference("wiki", "Space", "Page");
+
+    private final DocumentReference otherPage = new DocumentReference("wiki", "Space", "OtherPage");
+
+    private final Map<String, Object> entries = new HashMap<>();
+
+    private final List<CacheEntryListener<Object>> listeners = new ArrayList<>();
+
+    private YouTrackConfiguration configuration;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception
+    {
+        this.configuration = this.mocker.getInstance(YouTrackConfiguration.class);
+        when(this.configuration.isRenderingCacheEnabled()).thenReturn(true);
+        when(this.configuration.getRenderingCacheLifespan()).thenReturn(300);
+
+        Cache<Object> cache = mock(Cache.class);
+        doAnswer(invocation -> this.entries.put(invocation.getArgument(0), invocation.getArgument(1))).when(cache)
+            .set(anyString(), any());
+        when(cache.get(anyString())).thenAnswer(invocation -> this.entries.get(invocation.getArgument(0)));
+        doAnswer(invocation -> remove(invocation.getArgument(0))).when(cache).remove(anyString());
+        doAnswer(invocation -> {
+            new ArrayList<>(this.entries.keySet()).forEach(this::remove);
+            return null;
+        }).when(cache).removeAll();
+        doAnswer(invocation -> this.listeners.add(invocation.getArgument(0))).when(cache)
+            .addCacheEntryListener(any());
+
+        CacheManager cacheManager = this.mocker.registerMockComponent(CacheManager.class);
+        when(cacheManager.createNewCache(any())).thenReturn((Cache) cache);
+    }
+
+    @Test
+    public void getCopyOfTheCachedRendering() throws Exception
+    {
+        YouTrackRenderingCache renderingCache = this.mocker.getComponentUnderTest();
+        Block result = new WordBlock("issues");
+        renderingCache.set(Arrays.asList("rendering", "1"), this.page, result);
+
+        Block cachedResult = renderingCache.get(Arrays.asList("rendering", "1"));
+        assertEquals(result, cachedResult);
+        assertNotSame(result, cachedResult);
+        assertNull(renderingCache.get(Arrays.asList("rendering", "2")));
+    }
+
+    @Test
+    public void invalidateTheRenderingsOfADocument() throws Exception
+    {
+        YouTrackRenderingCache renderingCache = this.mocker.getComponentUnderTest();
+        renderingCache.set(Arrays.asList("rendering", "1"), this.page, new WordBlock("1"));
+        renderingCache.set(Arrays.asList("rendering", "2"), this.page, new WordBlock("2"));
+        renderingCache.set(Arrays.asList("rendering", "3"), this.otherPage, new WordBlock("3"));
+
+        renderingCache.invalidate(this.page);
+
+        assertNull(renderingCache.get(Arrays.asList("rendering", "1")));
+        assertNull(renderingCache.get(Arrays.asList("rendering", "2")));
+        assertEquals(new WordBlock("3"), renderingCache.get(Arrays.asList("rendering", "3")));
+    }
+
+    @Test
+    public void invalidateAfterEviction() throws Exception
+    {
+        YouTrackRenderingCache renderingCache = this.mocker.getComponentUnderTest();
+        renderingCache.set(Arrays.asList("rendering", "1"), this.page, new WordBlock("1"));
+
+        // The entry expires and the macro is rendered again on another page with the same key.
+        remove("rendering/1");
+        renderingCache.set(Arrays.asList("rendering", "1"), this.otherPage, new WordBlock("1"));
+        renderingCache.invalidate(this.page);
+
+        assertEquals(new WordBlock("1"), renderingCache.get(Arrays.asList("rendering", "1")));
+    }
+
+    @Test
+    public void flush() throws Exception
+    {
+        YouTrackRenderingCache renderingCache = this.mocker.getComponentUnderTest();
+        renderingCache.set(Arrays.asList("rendering", "1"), this.page, new WordBlock("1"));
+        renderingCache.set(Arrays.asList("rendering", "2"), null, new WordBlock("2"));
+
+        renderingCache.flush();
+
+        assertNull(renderingCache.get(Arrays.asList("rendering", "1")));
+        assertNull(renderingCache.get(Arrays.asList("rendering", "2")));
+    }
+
+    @Test
+    public void disabled() throws Exception
+    {
+        when(this.configuration.isRenderingCacheEnabled()).thenReturn(false);
+        YouTrackRenderingCache renderingCache = this.mocker.getComponentUnderTest();
+
+        assertFalse(renderingCache.isEnabled());
+        renderingCache.set(Arrays.asList("rendering", "1"), this.page, new WordBlock("1"));
+        assertNull(renderingCache.get(Arrays.asList("rendering", "1")));
+        assertEquals(0, this.entries.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object remove(String key)
+    {
+        Object value = this.entries.remove(key);
+        if (value != null) {
+            CacheEntry<Object> entry = mock(CacheEntry.class);
+            when(entry.getKey()).thenReturn(key);
+            when(entry.getValue()).thenReturn(value);
+            CacheEntryEvent<Object> event = mock(CacheEntryEvent.class);
+            when(event.getEntry()).thenReturn(entry);
+            this.listeners.forEach(listener -> listener.cacheEntryRemoved(event));
+        }
+        return value;
+    }
+}